@@ -2,32 +2,52 @@ package ru.practicum.shareit.booking;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
 import ru.practicum.shareit.booking.dto.BookingState;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ResponseCache;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class BookingClient extends BaseClient {
     private static final String API_PREFIX = "/bookings";
 
+    private final int maxEventSubscriptions;
+    private final int eventBufferSize;
+    private final AtomicInteger openEventSubscriptions = new AtomicInteger();
+
     @Autowired
-    public BookingClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public BookingClient(@Value("${shareit-server.url}") String serverUrl, WebClient.Builder builder,
+                         ClientHttpConnector shareitServerConnector, ResponseCache responseCache,
+                         @Value("${shareit-server.booking-events.max-subscriptions}") int maxEventSubscriptions,
+                         @Value("${shareit-server.booking-events.buffer-size}") int eventBufferSize) {
         super(
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .uriBuilderFactory(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
+                        .clientConnector(shareitServerConnector)
+                        .build(),
+                responseCache,
+                API_PREFIX
         );
+        this.maxEventSubscriptions = maxEventSubscriptions;
+        this.eventBufferSize = eventBufferSize;
     }
 
-    public ResponseEntity<Object> getBookings(Integer userId, BookingState state, Integer from, Integer size) {
+    public Mono<ResponseEntity<byte[]>> getBookings(Integer userId, BookingState state, Integer from, Integer size) {
         Map<String, Object> parameters = Map.of(
                 "state", state.name(),
                 "from", from,
@@ -36,7 +56,7 @@ public class BookingClient extends BaseClient {
         return get("?state={state}&from={from}&size={size}", userId, parameters);
     }
 
-    public ResponseEntity<Object> getBookingsForOwner(Integer userId, BookingState state, Integer from, Integer size) {
+    public Mono<ResponseEntity<byte[]>> getBookingsForOwner(Integer userId, BookingState state, Integer from, Integer size) {
         Map<String, Object> parameters = Map.of(
                 "state", state.name(),
                 "from", from,
@@ -45,15 +65,75 @@ public class BookingClient extends BaseClient {
         return get("/owner?state={state}&from={from}&size={size}", userId, parameters);
     }
 
-    public ResponseEntity<Object> bookItem(Integer userId, BookItemRequestDto requestDto) {
+    public Mono<ResponseEntity<Flux<String>>> streamBookings(Integer userId, BookingState state) {
+        return stream("?state={state}", userId, Map.of("state", state.name()));
+    }
+
+    public Mono<ResponseEntity<Flux<String>>> streamBookingsForOwner(Integer userId, BookingState state) {
+        return stream("/owner?state={state}", userId, Map.of("state", state.name()));
+    }
+
+    public Mono<ResponseEntity<byte[]>> getBookingsByCursor(Integer userId, BookingState state, String cursor, Integer size) {
+        Map<String, Object> parameters = Map.of(
+                "state", state.name(),
+                "cursor", cursor,
+                "size", size
+        );
+        return get("?state={state}&cursor={cursor}&size={size}", userId, parameters);
+    }
+
+    public Mono<ResponseEntity<byte[]>> getBookingsForOwnerByCursor(Integer userId, BookingState state, String cursor,
+                                                                    Integer size) {
+        Map<String, Object> parameters = Map.of(
+                "state", state.name(),
+                "cursor", cursor,
+                "size", size
+        );
+        return get("/owner?state={state}&cursor={cursor}&size={size}", userId, parameters);
+    }
+
+    public Mono<ResponseEntity<byte[]>> bookItem(Integer userId, BookItemRequestDto requestDto) {
         return post("", userId, requestDto);
     }
 
-    public ResponseEntity<Object> getBooking(Integer userId, Integer bookingId) {
+    public Mono<ResponseEntity<byte[]>> getBooking(Integer userId, Integer bookingId) {
         return get("/" + bookingId, userId);
     }
 
-    public ResponseEntity<Object> replyToBooking(Integer ownerId, boolean approved, Integer bookingId) {
+    //Подписка держит соединение из общего пула, пока открыта, поэтому их число ограничено отдельно:
+    //иначе подписки заняли бы весь пул и обычные запросы ждали бы свободного соединения
+    public Mono<ResponseEntity<Flux<ServerSentEvent<String>>>> subscribeToEvents(Integer userId,
+                                                                                 @Nullable Integer bookingId) {
+        Mono<ResponseEntity<Flux<ServerSentEvent<String>>>> events = bookingId == null
+                ? events("/events", userId, null, eventBufferSize)
+                : events("/events?bookingId={bookingId}", userId, Map.of("bookingId", bookingId), eventBufferSize);
+        //Место занимается при подписке, а не при сборке Mono: иначе неподписанный Mono держал бы его вечно
+        return Mono.defer(() -> {
+            if (openEventSubscriptions.incrementAndGet() > maxEventSubscriptions) {
+                openEventSubscriptions.decrementAndGet();
+                return Mono.error(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                        "Too many booking event subscriptions"));
+            }
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) openEventSubscriptions.decrementAndGet();
+            };
+            AtomicBoolean bodyPassed = new AtomicBoolean();
+            //Место освобождается, когда закончится поток событий, или раньше, если до него не дошло
+            return events
+                    .map(response -> {
+                        bodyPassed.set(true);
+                        return ResponseEntity.status(response.getStatusCodeValue())
+                                .headers(response.getHeaders())
+                                .body(response.getBody().doFinally(signal -> release.run()));
+                    })
+                    .doFinally(signal -> {
+                        if (!bodyPassed.get()) release.run();
+                    });
+        });
+    }
+
+    public Mono<ResponseEntity<byte[]>> replyToBooking(Integer ownerId, boolean approved, Integer bookingId) {
         Map<String, Object> parameters = Map.of("approved", approved);
         return patch("/" + bookingId + "?approved={approved}", ownerId, parameters, null);
     }
@@ -3,12 +3,17 @@ package ru.practicum.shareit.booking;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
 import ru.practicum.shareit.booking.dto.BookingState;
+import ru.practicum.shareit.client.BaseClient;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
@@ -23,44 +28,85 @@ public class BookingController {
     private final BookingClient bookingClient;
 
     @GetMapping
-    public ResponseEntity<Object> getBookings(@RequestHeader("X-Sharer-User-Id") Integer userId,
-                                              @RequestParam(name = "state", defaultValue = "all") String stateParam,
-                                              @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                              @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+    public Mono<ResponseEntity<byte[]>> getBookings(
+            @RequestHeader("X-Sharer-User-Id") Integer userId,
+            @RequestParam(name = "state", defaultValue = "all") String stateParam,
+            @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
+            @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+            @RequestParam(name = "cursor", required = false) String cursor) {
         BookingState state = BookingState.from(stateParam)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateParam));
+        if (cursor != null) {
+            log.info("Get booking with state {}, userId={}, cursor={}, size={}", stateParam, userId, cursor, size);
+            return bookingClient.getBookingsByCursor(userId, state, cursor, size);
+        }
         log.info("Get booking with state {}, userId={}, from={}, size={}", stateParam, userId, from, size);
         return bookingClient.getBookings(userId, state, from, size);
     }
 
     @GetMapping("/owner")
-    public ResponseEntity<Object> getBookingsForOwner(@RequestHeader("X-Sharer-User-Id") Integer userId,
-                                                      @RequestParam(name = "state", defaultValue = "all") String stateParam,
-                                                      @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                                      @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+    public Mono<ResponseEntity<byte[]>> getBookingsForOwner(
+            @RequestHeader("X-Sharer-User-Id") Integer userId,
+            @RequestParam(name = "state", defaultValue = "all") String stateParam,
+            @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
+            @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+            @RequestParam(name = "cursor", required = false) String cursor) {
         BookingState state = BookingState.from(stateParam)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateParam));
+        if (cursor != null) {
+            log.info("Get owner booking with state {}, userId={}, cursor={}, size={}", stateParam, userId, cursor, size);
+            return bookingClient.getBookingsForOwnerByCursor(userId, state, cursor, size);
+        }
         log.info("Get booking with state {}, userId={}, from={}, size={}", stateParam, userId, from, size);
         return bookingClient.getBookingsForOwner(userId, state, from, size);
     }
 
+    @GetMapping(produces = BaseClient.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<String>>> streamBookings(
+            @RequestHeader("X-Sharer-User-Id") Integer userId,
+            @RequestParam(name = "state", defaultValue = "all") String stateParam) {
+        BookingState state = BookingState.from(stateParam)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateParam));
+        log.info("Stream bookings with state {}, userId={}", stateParam, userId);
+        return bookingClient.streamBookings(userId, state);
+    }
+
+    @GetMapping(value = "/owner", produces = BaseClient.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<String>>> streamBookingsForOwner(
+            @RequestHeader("X-Sharer-User-Id") Integer userId,
+            @RequestParam(name = "state", defaultValue = "all") String stateParam) {
+        BookingState state = BookingState.from(stateParam)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateParam));
+        log.info("Stream owner bookings with state {}, userId={}", stateParam, userId);
+        return bookingClient.streamBookingsForOwner(userId, state);
+    }
+
+    //События новых аренд и смены их статуса (text/event-stream) вместо опроса GET /bookings/{bookingId}
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Mono<ResponseEntity<Flux<ServerSentEvent<String>>>> subscribeToBookingEvents(
+            @RequestHeader("X-Sharer-User-Id") Integer userId,
+            @Positive @RequestParam(name = "bookingId", required = false) Integer bookingId) {
+        log.info("Subscribe to booking events, userId={}, bookingId={}", userId, bookingId);
+        return bookingClient.subscribeToEvents(userId, bookingId);
+    }
+
     @PostMapping
-    public ResponseEntity<Object> bookItem(@RequestHeader("X-Sharer-User-Id") Integer userId,
-                                           @RequestBody @Valid BookItemRequestDto requestDto) {
+    public Mono<ResponseEntity<byte[]>> bookItem(@RequestHeader("X-Sharer-User-Id") Integer userId,
+                                                 @RequestBody @Valid BookItemRequestDto requestDto) {
         log.info("Creating booking {}, userId={}", requestDto, userId);
         return bookingClient.bookItem(userId, requestDto);
     }
 
     @PatchMapping("/{bookingId}")
-    public ResponseEntity<Object> replyToBooking(@RequestHeader("X-Sharer-User-Id") Integer ownerId,
-                                                 @RequestParam boolean approved, @PathVariable Integer bookingId) {
+    public Mono<ResponseEntity<byte[]>> replyToBooking(@RequestHeader("X-Sharer-User-Id") Integer ownerId,
+                                                       @RequestParam boolean approved, @PathVariable Integer bookingId) {
         log.info("Reply on booking {} {}", bookingId, approved);
         return bookingClient.replyToBooking(ownerId, approved, bookingId);
     }
 
     @GetMapping("/{bookingId}")
-    public ResponseEntity<Object> getBooking(@RequestHeader("X-Sharer-User-Id") Integer userId,
-                                             @PathVariable Integer bookingId) {
+    public Mono<ResponseEntity<byte[]>> getBooking(@RequestHeader("X-Sharer-User-Id") Integer userId,
+                                                   @PathVariable Integer bookingId) {
         log.info("Get booking {}, userId={}", bookingId, userId);
         return bookingClient.getBooking(userId, bookingId);
     }
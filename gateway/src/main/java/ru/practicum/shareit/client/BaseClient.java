@@ -1,98 +1,200 @@
 package ru.practicum.shareit.client;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
-import org.springframework.http.HttpEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.lang.Nullable;
-import org.springframework.web.client.HttpStatusCodeException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+//Запросы к серверу неблокирующие: методы возвращают Mono, и поток Tomcat освобождается
+//на все время ожидания ответа сервера
+
+@Slf4j
 public class BaseClient {
-    protected final RestTemplate rest;
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SERVER_SENT_EVENT =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of("connection", "keep-alive", "proxy-authenticate",
+            "proxy-authorization", "te", "trailer", "transfer-encoding", "upgrade");
+
+    protected final WebClient webClient;
+    private final ResponseCache responseCache;
+    private final String resource;
 
-    public BaseClient(RestTemplate rest) {
-        this.rest = rest;
+    public BaseClient(WebClient webClient, ResponseCache responseCache, String resource) {
+        this.webClient = webClient;
+        this.responseCache = responseCache;
+        this.resource = resource;
     }
 
-    protected ResponseEntity<Object> get(String path) {
+    protected Mono<ResponseEntity<byte[]>> get(String path) {
         return get(path, null, null);
     }
 
-    protected ResponseEntity<Object> get(String path, Integer userId) {
+    protected Mono<ResponseEntity<byte[]>> get(String path, Integer userId) {
         return get(path, userId, null);
     }
 
-    protected ResponseEntity<Object> get(String path, Integer userId, @Nullable Map<String, Object> parameters) {
-        return makeAndSendRequest(HttpMethod.GET, path, userId, parameters, null);
-    }
+    protected Mono<ResponseEntity<byte[]>> get(String path, Integer userId, @Nullable Map<String, Object> parameters) {
+        String key = cacheKey(path, userId, parameters);
+        ResponseCache.CachedResponse cached = responseCache.get(resource, key);
+        if (cached != null && responseCache.isFresh(cached)) {
+            return Mono.just(cached.getResponse());
+        }
 
-    protected <T> ResponseEntity<Object> post(String path, T body) {
+        long generation = responseCache.generation(resource);
+        HttpHeaders headers = defaultHeaders(userId);
+        if (cached != null && cached.getEtag() != null) {
+            headers.setIfNoneMatch(cached.getEtag());
+        }
+        return sendRequest(HttpMethod.GET, path, headers, parameters, null)
+                .map(response -> {
+                    if (response.getStatusCodeValue() == HttpStatus.NOT_MODIFIED.value() && cached != null) {
+                        return responseCache.revalidate(resource, key, cached, generation).getResponse();
+                    }
+                    if (response.getStatusCodeValue() == HttpStatus.OK.value()) {
+                        return responseCache.put(resource, key, response, generation).getResponse();
+                    }
+                    return response;
+                });
+    }
+
+    protected <T> Mono<ResponseEntity<byte[]>> post(String path, T body) {
         return post(path, null, null, body);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, Integer userId, T body) {
+    protected <T> Mono<ResponseEntity<byte[]>> post(String path, Integer userId, T body) {
         return post(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, Integer userId, @Nullable Map<String, Object> parameters, T body) {
+    protected <T> Mono<ResponseEntity<byte[]>> post(String path, Integer userId, @Nullable Map<String, Object> parameters, T body) {
         return makeAndSendRequest(HttpMethod.POST, path, userId, parameters, body);
     }
 
-    protected <T> ResponseEntity<Object> put(String path, Integer userId, T body) {
+    protected <T> Mono<ResponseEntity<byte[]>> put(String path, Integer userId, T body) {
         return put(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> put(String path, Integer userId, @Nullable Map<String, Object> parameters, T body) {
+    protected <T> Mono<ResponseEntity<byte[]>> put(String path, Integer userId, @Nullable Map<String, Object> parameters, T body) {
         return makeAndSendRequest(HttpMethod.PUT, path, userId, parameters, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, T body) {
+    protected <T> Mono<ResponseEntity<byte[]>> patch(String path, T body) {
         return patch(path, null, null, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, Integer userId) {
+    protected <T> Mono<ResponseEntity<byte[]>> patch(String path, Integer userId) {
         return patch(path, userId, null, null);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, Integer userId, T body) {
+    protected <T> Mono<ResponseEntity<byte[]>> patch(String path, Integer userId, T body) {
         return patch(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, Integer userId, @Nullable Map<String, Object> parameters, T body) {
+    protected <T> Mono<ResponseEntity<byte[]>> patch(String path, Integer userId, @Nullable Map<String, Object> parameters, T body) {
         return makeAndSendRequest(HttpMethod.PATCH, path, userId, parameters, body);
     }
 
-    protected ResponseEntity<Object> delete(String path) {
+    protected Mono<ResponseEntity<byte[]>> delete(String path) {
         return delete(path, null, null);
     }
 
-    protected ResponseEntity<Object> delete(String path, Integer userId) {
+    protected Mono<ResponseEntity<byte[]>> delete(String path, Integer userId) {
         return delete(path, userId, null);
     }
 
-    protected ResponseEntity<Object> delete(String path, Integer userId, @Nullable Map<String, Object> parameters) {
+    protected Mono<ResponseEntity<byte[]>> delete(String path, Integer userId, @Nullable Map<String, Object> parameters) {
         return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null);
     }
 
-    private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Integer userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId));
-
-        ResponseEntity<Object> shareitServerResponse;
-        try {
-            if (parameters != null) {
-                shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class, parameters);
-            } else {
-                shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class);
-            }
-        } catch (HttpStatusCodeException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
-        }
-        return prepareGatewayResponse(shareitServerResponse);
+    //Потоковый ответ сервера (application/x-ndjson) не собирается целиком: статус и заголовки
+    //отдаются сразу, а строки передаются клиенту по мере поступления от сервера.
+    //Так отдается весь список, без пагинации, клиентам с Accept: application/x-ndjson
+    protected Mono<ResponseEntity<Flux<String>>> stream(String path, Integer userId,
+                                                        @Nullable Map<String, Object> parameters) {
+        return webClient.get()
+                .uri(path, parameters != null ? parameters : Map.of())
+                .headers(headers -> headers.addAll(streamHeaders(userId)))
+                .retrieve()
+                .toEntityFlux(String.class)
+                .map(response -> ResponseEntity.status(response.getStatusCodeValue())
+                        .contentType(APPLICATION_NDJSON)
+                        .body(response.getBody()))
+                .onErrorResume(WebClientResponseException.class, e -> Mono.just(
+                        ResponseEntity.status(e.getRawStatusCode())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .body(Flux.just(e.getResponseBodyAsString()))));
+    }
+
+    //События сервера (text/event-stream) передаются клиенту по мере поступления и не кэшируются.
+    //Непереданных клиенту событий копится не больше bufferSize: при переполнении подписка закрывается,
+    //так же как на сервере. Ошибку подписки (404, 429) сервер отдает до начала потока, ее статус сохраняется
+    protected Mono<ResponseEntity<Flux<ServerSentEvent<String>>>> events(String path, Integer userId,
+                                                                        @Nullable Map<String, Object> parameters,
+                                                                        int bufferSize) {
+        return webClient.get()
+                .uri(path, parameters != null ? parameters : Map.of())
+                .headers(headers -> headers.addAll(eventHeaders(userId)))
+                .retrieve()
+                .toEntityFlux(SERVER_SENT_EVENT)
+                .map(response -> ResponseEntity.status(response.getStatusCodeValue())
+                        .contentType(MediaType.TEXT_EVENT_STREAM)
+                        .body(response.getBody().onBackpressureBuffer(bufferSize,
+                                event -> log.warn("Event buffer overflow for {}, subscription closed", path))))
+                .onErrorResume(WebClientResponseException.class, e -> Mono.just(
+                        ResponseEntity.status(e.getRawStatusCode())
+                                .contentType(MediaType.TEXT_EVENT_STREAM)
+                                .body(Flux.just(ServerSentEvent.builder(e.getResponseBodyAsString())
+                                        .event("error")
+                                        .build()))));
+    }
+
+    //Запись меняет данные на сервере: сохраненные ответы по затронутым ресурсам больше не годятся
+    private <T> Mono<ResponseEntity<byte[]>> makeAndSendRequest(HttpMethod method, String path, Integer userId,
+                                                                @Nullable Map<String, Object> parameters,
+                                                                @Nullable T body) {
+        return sendRequest(method, path, defaultHeaders(userId), parameters, body)
+                .doFinally(signal -> responseCache.invalidate(resource));
+    }
+
+    //Ответ сервера передается клиенту как есть: тело - массивом байт, без разбора в дерево объектов
+    //и повторной сериализации. Валидация выполняется только для входящих запросов
+    private <T> Mono<ResponseEntity<byte[]>> sendRequest(HttpMethod method, String path, HttpHeaders headers,
+                                                         @Nullable Map<String, Object> parameters,
+                                                         @Nullable T body) {
+        WebClient.RequestBodySpec request = webClient.method(method)
+                .uri(path, parameters != null ? parameters : Map.of())
+                .headers(requestHeaders -> requestHeaders.addAll(headers));
+        WebClient.RequestHeadersSpec<?> requestWithBody = body != null ? request.bodyValue(body) : request;
+        //exchangeToMono не превращает 4xx/5xx в исключение: ответ с ошибкой передается так же, как успешный
+        return requestWithBody.exchangeToMono(response -> response.toEntity(byte[].class))
+                .map(BaseClient::prepareGatewayResponse);
+    }
+
+    //Значения параметров кодируются так же, как WebClient кодирует их в запросе: иначе текст поиска
+    //с '&', '=' или '?' дал бы тот же ключ, что и другая строка запроса, и чужой ответ из кэша
+    private static String cacheKey(String path, Integer userId, @Nullable Map<String, Object> parameters) {
+        String uri = UriComponentsBuilder.fromUriString(path)
+                .encode()
+                .buildAndExpand(parameters != null ? parameters : Map.of())
+                .toUriString();
+        return userId + " " + uri;
     }
 
     private HttpHeaders defaultHeaders(Integer userId) {
@@ -105,12 +207,28 @@ public class BaseClient {
         return headers;
     }
 
-    private static ResponseEntity<Object> prepareGatewayResponse(ResponseEntity<Object> response) {
-        if (response.getStatusCode().is2xxSuccessful()) {
-            return response;
+    //application/json - чтобы ошибку подписки сервер описал в JSON, а не отдал пустое тело
+    private HttpHeaders eventHeaders(Integer userId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_JSON));
+        if (userId != null) {
+            headers.set("X-Sharer-User-Id", String.valueOf(userId));
+        }
+        return headers;
+    }
+
+    private HttpHeaders streamHeaders(Integer userId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(APPLICATION_NDJSON));
+        if (userId != null) {
+            headers.set("X-Sharer-User-Id", String.valueOf(userId));
         }
+        return headers;
+    }
 
-        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(response.getStatusCode());
+    private static ResponseEntity<byte[]> prepareGatewayResponse(ResponseEntity<byte[]> response) {
+        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(response.getStatusCodeValue())
+                .headers(proxyHeaders(response.getHeaders()));
 
         if (response.hasBody()) {
             return responseBuilder.body(response.getBody());
@@ -118,4 +236,17 @@ public class BaseClient {
 
         return responseBuilder.build();
     }
+
+    //Заголовки ответа сервера передаются клиенту, кроме относящихся к соединению gateway с сервером
+    private static HttpHeaders proxyHeaders(@Nullable HttpHeaders serverHeaders) {
+        HttpHeaders headers = new HttpHeaders();
+        if (serverHeaders != null) {
+            serverHeaders.forEach((name, values) -> {
+                if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                    headers.addAll(name, values);
+                }
+            });
+        }
+        return headers;
+    }
 }
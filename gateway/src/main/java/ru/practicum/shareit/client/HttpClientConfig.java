@@ -0,0 +1,38 @@
+package ru.practicum.shareit.client;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+//Один пул соединений на все клиенты gateway: ItemClient, BookingClient, UserClient и RequestClient
+//ходят на один и тот же shareit-server, и отдельные пулы только умножали бы число соединений к нему
+@Configuration
+@EnableConfigurationProperties(HttpClientProperties.class)
+public class HttpClientConfig {
+    private static final String POOL_NAME = "shareit-server";
+
+    //reactor.netty.connection.provider.* в /actuator/metrics: активные, свободные и ожидающие соединения
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider shareitServerConnectionProvider(HttpClientProperties properties) {
+        return ConnectionProvider.builder(POOL_NAME)
+                .maxConnections(properties.getMaxConnections())
+                .pendingAcquireTimeout(properties.getConnectionRequestTimeout())
+                .maxIdleTime(properties.getMaxIdleTime())
+                .evictInBackground(properties.getEvictionInterval())
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public ReactorClientHttpConnector shareitServerConnector(ConnectionProvider connectionProvider,
+                                                             HttpClientProperties properties) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .responseTimeout(properties.getReadTimeout());
+        return new ReactorClientHttpConnector(httpClient);
+    }
+}
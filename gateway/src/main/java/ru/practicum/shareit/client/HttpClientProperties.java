@@ -0,0 +1,24 @@
+package ru.practicum.shareit.client;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+//Настройки пула соединений gateway -> shareit-server, общего для всех клиентов
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "shareit-server.http-client")
+public class HttpClientProperties {
+    //Все клиенты ходят на один сервер, поэтому пул один и ограничивается общим числом соединений
+    private int maxConnections = 200;
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    //Таймаут ожидания данных между пакетами ответа, а не на весь ответ
+    private Duration readTimeout = Duration.ofSeconds(30);
+    //Сколько ждать свободного соединения из пула, прежде чем вернуть ошибку
+    private Duration connectionRequestTimeout = Duration.ofSeconds(2);
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+    //Как часто фоновая задача закрывает простаивающие соединения
+    private Duration evictionInterval = Duration.ofSeconds(10);
+}
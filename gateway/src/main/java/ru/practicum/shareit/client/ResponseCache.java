@@ -0,0 +1,125 @@
+package ru.practicum.shareit.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+//Кэш успешных ответов сервера на GET. Ключ - ресурс, путь с параметрами и X-Sharer-User-Id.
+//Свежий ответ отдается без обращения к серверу, устаревший перепроверяется через If-None-Match.
+//Запись через gateway сбрасывает ресурсы, ответы которых она меняет; записи через другие экземпляры
+//gateway не видны, их задержку ограничивает fresh-for
+@Component
+public class ResponseCache {
+    public static final String USERS = "/users";
+    public static final String ITEMS = "/items";
+    public static final String BOOKINGS = "/bookings";
+    public static final String REQUESTS = "/requests";
+
+    //Пользователи входят во все ответы; вещи - в бронирования и ответы на запросы;
+    //бронирования - в вещи владельца (последнее и следующее бронирование)
+    private static final Map<String, Set<String>> INVALIDATES = Map.of(
+            USERS, Set.of(USERS, ITEMS, BOOKINGS, REQUESTS),
+            ITEMS, Set.of(ITEMS, BOOKINGS, REQUESTS),
+            BOOKINGS, Set.of(BOOKINGS, ITEMS),
+            REQUESTS, Set.of(REQUESTS));
+
+    private final Map<String, Cache<String, CachedResponse>> caches;
+    //Поколение ресурса растет при каждом сбросе: ответ, запрошенный до записи, не попадет в кэш после нее
+    private final Map<String, AtomicLong> generations;
+    private final Duration freshFor;
+    private final Clock clock;
+
+    @Autowired
+    public ResponseCache(@Value("${shareit-server.response-cache.max-size}") long maxSize,
+                         @Value("${shareit-server.response-cache.fresh-for}") Duration freshFor,
+                         @Value("${shareit-server.response-cache.expire-after-write}") Duration expireAfterWrite,
+                         MeterRegistry meterRegistry) {
+        this(maxSize, freshFor, expireAfterWrite, Clock.systemUTC());
+        caches.forEach((resource, cache) -> CaffeineCacheMetrics.monitor(meterRegistry, cache,
+                "gateway.responses" + resource));
+    }
+
+    ResponseCache(long maxSize, Duration freshFor, Duration expireAfterWrite, Clock clock) {
+        this.caches = INVALIDATES.keySet().stream()
+                .collect(Collectors.toMap(Function.identity(), resource -> Caffeine.newBuilder()
+                        .maximumSize(maxSize)
+                        .expireAfterWrite(expireAfterWrite)
+                        .recordStats()
+                        .<String, CachedResponse>build()));
+        this.generations = INVALIDATES.keySet().stream()
+                .collect(Collectors.toMap(Function.identity(), resource -> new AtomicLong()));
+        this.freshFor = freshFor;
+        this.clock = clock;
+    }
+
+    @Nullable
+    public CachedResponse get(String resource, String key) {
+        return caches.get(resource).getIfPresent(key);
+    }
+
+    public long generation(String resource) {
+        return generations.get(resource).get();
+    }
+
+    public CachedResponse put(String resource, String key, ResponseEntity<byte[]> response, long generation) {
+        CachedResponse cached = new CachedResponse(response, clock.instant().plus(freshFor));
+        store(resource, key, cached, generation);
+        return cached;
+    }
+
+    //Сервер ответил 304: сохраненный ответ снова свежий
+    public CachedResponse revalidate(String resource, String key, CachedResponse cached, long generation) {
+        CachedResponse revalidated = new CachedResponse(cached.response, clock.instant().plus(freshFor));
+        store(resource, key, revalidated, generation);
+        return revalidated;
+    }
+
+    public void invalidate(String writtenResource) {
+        INVALIDATES.get(writtenResource).forEach(resource -> {
+            generations.get(resource).incrementAndGet();
+            caches.get(resource).invalidateAll();
+        });
+    }
+
+    public boolean isFresh(CachedResponse cached) {
+        return clock.instant().isBefore(cached.freshUntil);
+    }
+
+    private void store(String resource, String key, CachedResponse cached, long generation) {
+        Cache<String, CachedResponse> cache = caches.get(resource);
+        cache.put(key, cached);
+        //Сброс мог пройти между чтением ответа и записью в кэш - тогда ответ уже устарел
+        if (generations.get(resource).get() != generation) {
+            cache.invalidate(key);
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class CachedResponse {
+        private final ResponseEntity<byte[]> response;
+        private final Instant freshUntil;
+
+        @Nullable
+        public String getEtag() {
+            return response.getHeaders().getETag();
+        }
+    }
+}
@@ -2,15 +2,21 @@ package ru.practicum.shareit.item;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ResponseCache;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.Map;
 
 @Service
@@ -18,32 +24,35 @@ public class ItemClient extends BaseClient {
     private static final String API_PREFIX = "/items";
 
     @Autowired
-    public ItemClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public ItemClient(@Value("${shareit-server.url}") String serverUrl, WebClient.Builder builder,
+                      ClientHttpConnector shareitServerConnector, ResponseCache responseCache) {
         super(
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .uriBuilderFactory(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
+                        .clientConnector(shareitServerConnector)
+                        .build(),
+                responseCache,
+                API_PREFIX
         );
     }
 
-    public ResponseEntity<Object> createItem(Integer userId, ItemDto itemDto) {
+    public Mono<ResponseEntity<byte[]>> createItem(Integer userId, ItemDto itemDto) {
         return post("", userId, itemDto);
     }
 
-    public ResponseEntity<Object> createComment(Integer userId, Integer itemId, CommentDto comment) {
+    public Mono<ResponseEntity<byte[]>> createComment(Integer userId, Integer itemId, CommentDto comment) {
         return post("/" + itemId + "/comment", userId, comment);
     }
 
-    public ResponseEntity<Object> updateItem(Integer userId, ItemDto itemDto, Integer itemId) {
+    public Mono<ResponseEntity<byte[]>> updateItem(Integer userId, ItemDto itemDto, Integer itemId) {
         return patch("/" + itemId, userId, itemDto);
     }
 
-    public ResponseEntity<Object> getItemById(Integer userId, Integer itemId) {
+    public Mono<ResponseEntity<byte[]>> getItemById(Integer userId, Integer itemId) {
         return get("/" + itemId, userId);
     }
 
-    public ResponseEntity<Object> getAllItemsOwner(Integer from, Integer size, Integer userId) {
+    public Mono<ResponseEntity<byte[]>> getAllItemsOwner(Integer from, Integer size, Integer userId) {
         if (from == null) {
             return get("", userId);
         } else {
@@ -55,20 +64,46 @@ public class ItemClient extends BaseClient {
         }
     }
 
-    public ResponseEntity<Object> searchItemByText(Integer from, Integer size, Integer userId, String text) {
-        Map<String, Object> parameters;
-        if (from == null) {
-            parameters = Map.of(
-                    "text", text
-            );
-            return get("/search?text={text}", userId, parameters);
-        } else {
-            parameters = Map.of(
-                    "from", from,
-                    "size", size,
-                    "text", text
-            );
+    public Mono<ResponseEntity<Flux<String>>> streamAllItemsOwner(Integer userId) {
+        return stream("", userId, null);
+    }
+
+    public Mono<ResponseEntity<byte[]>> searchItemByText(Integer from, Integer size, Integer userId, String text,
+                                                         @Nullable LocalDateTime start, @Nullable LocalDateTime end) {
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder path = new StringBuilder("/search?text={text}");
+        parameters.put("text", text);
+        if (from != null) {
+            path.append("&from={from}&size={size}");
+            parameters.put("from", from);
+            parameters.put("size", size);
+        }
+        if (start != null) {
+            path.append("&start={start}");
+            parameters.put("start", start);
         }
-        return get("/search?text={text}&from={from}&size={size}", userId, parameters);
+        if (end != null) {
+            path.append("&end={end}");
+            parameters.put("end", end);
+        }
+        return get(path.toString(), userId, parameters);
+    }
+
+    public Mono<ResponseEntity<byte[]>> getItemAvailability(Integer userId, Integer itemId, LocalDateTime start,
+                                                            LocalDateTime end) {
+        Map<String, Object> parameters = Map.of(
+                "itemId", itemId,
+                "start", start,
+                "end", end
+        );
+        return get("/{itemId}/availability?start={start}&end={end}", userId, parameters);
+    }
+
+    public Mono<ResponseEntity<byte[]>> suggestItemNames(Integer userId, String prefix, Integer limit) {
+        Map<String, Object> parameters = Map.of(
+                "prefix", prefix,
+                "limit", limit
+        );
+        return get("/suggest?prefix={prefix}&limit={limit}", userId, parameters);
     }
 }
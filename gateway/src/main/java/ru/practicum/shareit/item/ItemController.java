@@ -2,17 +2,28 @@ package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.marker.ValidItemUpdate;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Future;
+import javax.validation.constraints.FutureOrPresent;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import java.time.LocalDateTime;
+
+import static org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME;
 
 @Controller
 @RequestMapping(path = "/items")
@@ -23,46 +34,75 @@ public class ItemController {
     private final ItemClient itemClient;
 
     @PostMapping
-    public ResponseEntity<Object> createItem(@RequestHeader("X-Sharer-User-Id") Integer userId,
-                                             @RequestBody @Valid ItemDto itemDto) {
+    public Mono<ResponseEntity<byte[]>> createItem(@RequestHeader("X-Sharer-User-Id") Integer userId,
+                                                   @RequestBody @Valid ItemDto itemDto) {
         return itemClient.createItem(userId, itemDto);
     }
 
     @PostMapping("/{itemId}/comment")
-    public ResponseEntity<Object> createComment(@RequestHeader("X-Sharer-User-Id") Integer userId,
-                                                @PathVariable Integer itemId, @RequestBody CommentDto comment) {
+    public Mono<ResponseEntity<byte[]>> createComment(@RequestHeader("X-Sharer-User-Id") Integer userId,
+                                                      @PathVariable Integer itemId, @RequestBody CommentDto comment) {
         return itemClient.createComment(userId, itemId, comment);
     }
 
     @PatchMapping("/{itemId}")
-    public ResponseEntity<Object> updateItem(@RequestHeader("X-Sharer-User-Id") Integer userId,
-                                             @RequestBody @Validated(ValidItemUpdate.class) ItemDto itemDto,
-                                             @PathVariable Integer itemId) {
+    public Mono<ResponseEntity<byte[]>> updateItem(@RequestHeader("X-Sharer-User-Id") Integer userId,
+                                                   @RequestBody @Validated(ValidItemUpdate.class) ItemDto itemDto,
+                                                   @PathVariable Integer itemId) {
         return itemClient.updateItem(userId, itemDto, itemId);
     }
 
     @GetMapping("/{itemId}")
-    public ResponseEntity<Object> getItemById(@RequestHeader("X-Sharer-User-Id") Integer userId,
-                                              @PathVariable Integer itemId) {
+    public Mono<ResponseEntity<byte[]>> getItemById(@RequestHeader("X-Sharer-User-Id") Integer userId,
+                                                    @PathVariable Integer itemId) {
         return itemClient.getItemById(userId, itemId);
     }
 
+    @GetMapping("/{itemId}/availability")
+    public Mono<ResponseEntity<byte[]>> getItemAvailability(@RequestHeader("X-Sharer-User-Id") Integer userId,
+                                                            @PathVariable Integer itemId,
+                                                            @FutureOrPresent @RequestParam
+                                                            @DateTimeFormat(iso = DATE_TIME) LocalDateTime start,
+                                                            @Future @RequestParam
+                                                            @DateTimeFormat(iso = DATE_TIME) LocalDateTime end) {
+        return itemClient.getItemAvailability(userId, itemId, start, end);
+    }
+
     @GetMapping
-    public ResponseEntity<Object> getAllItemsOwner(@PositiveOrZero
-                                                   @RequestParam(value = "from", required = false) Integer from,
-                                                   @Positive
-                                                   @RequestParam(value = "size", required = false) Integer size,
-                                                   @RequestHeader("X-Sharer-User-Id") Integer userId) {
+    public Mono<ResponseEntity<byte[]>> getAllItemsOwner(@PositiveOrZero
+                                                         @RequestParam(value = "from", required = false) Integer from,
+                                                         @Positive
+                                                         @RequestParam(value = "size", required = false) Integer size,
+                                                         @RequestHeader("X-Sharer-User-Id") Integer userId) {
         return itemClient.getAllItemsOwner(from, size, userId);
     }
 
+    @GetMapping(produces = BaseClient.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<String>>> streamAllItemsOwner(
+            @RequestHeader("X-Sharer-User-Id") Integer userId) {
+        return itemClient.streamAllItemsOwner(userId);
+    }
+
+    //start и end - только вещи, свободные на весь период
     @GetMapping("/search")
-    public ResponseEntity<Object> searchItemByText(@PositiveOrZero
-                                                   @RequestParam(value = "from", required = false) Integer from,
-                                                   @Positive
-                                                   @RequestParam(value = "size", required = false) Integer size,
-                                                   @RequestHeader("X-Sharer-User-Id") Integer userId,
-                                                   @RequestParam String text) {
-        return itemClient.searchItemByText(from, size, userId, text);
+    public Mono<ResponseEntity<byte[]>> searchItemByText(@PositiveOrZero
+                                                         @RequestParam(value = "from", required = false) Integer from,
+                                                         @Positive
+                                                         @RequestParam(value = "size", required = false) Integer size,
+                                                         @RequestHeader("X-Sharer-User-Id") Integer userId,
+                                                         @RequestParam String text,
+                                                         @FutureOrPresent @RequestParam(required = false)
+                                                         @DateTimeFormat(iso = DATE_TIME) LocalDateTime start,
+                                                         @Future @RequestParam(required = false)
+                                                         @DateTimeFormat(iso = DATE_TIME) LocalDateTime end) {
+        return itemClient.searchItemByText(from, size, userId, text, start, end);
+    }
+
+    @GetMapping("/suggest")
+    public Mono<ResponseEntity<byte[]>> suggestItemNames(@RequestHeader("X-Sharer-User-Id") Integer userId,
+                                                         @NotBlank @RequestParam String prefix,
+                                                         @Positive @Max(50)
+                                                         @RequestParam(defaultValue = "10") Integer limit) {
+        return itemClient.suggestItemNames(userId, prefix, limit);
     }
 }
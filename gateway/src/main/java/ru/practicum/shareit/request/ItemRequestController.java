@@ -6,6 +6,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.request.dto.RequestDto;
 
 import javax.validation.Valid;
@@ -22,27 +25,33 @@ public class ItemRequestController {
     private final RequestClient requestClient;
 
     @PostMapping
-    public ResponseEntity<Object> createItemRequest(@RequestHeader("X-Sharer-User-Id") Integer creatorId,
-                                                    @RequestBody @Valid RequestDto request) {
+    public Mono<ResponseEntity<byte[]>> createItemRequest(@RequestHeader("X-Sharer-User-Id") Integer creatorId,
+                                                          @RequestBody @Valid RequestDto request) {
         return requestClient.createItemRequest(creatorId, request);
     }
 
     @GetMapping
-    public ResponseEntity<Object> getItemRequestForUser(@RequestHeader("X-Sharer-User-Id") Integer creatorId) {
+    public Mono<ResponseEntity<byte[]>> getItemRequestForUser(@RequestHeader("X-Sharer-User-Id") Integer creatorId) {
         return requestClient.getItemRequestForUser(creatorId);
     }
 
     @GetMapping("/all")
-    public ResponseEntity<Object> getItemsWithPagination(@PositiveOrZero
-                                                         @RequestParam(value = "from", required = false) Integer from,
-                                                         @Positive @RequestParam(value = "size", required = false) Integer size,
-                                                         @RequestHeader("X-Sharer-User-Id") Integer userId) {
+    public Mono<ResponseEntity<byte[]>> getItemsWithPagination(@PositiveOrZero
+                                                               @RequestParam(value = "from", required = false) Integer from,
+                                                               @Positive @RequestParam(value = "size", required = false) Integer size,
+                                                               @RequestHeader("X-Sharer-User-Id") Integer userId) {
         return requestClient.getItemsWithPagination(from, size, userId);
     }
 
+    @GetMapping(value = "/all", produces = BaseClient.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<String>>> streamAllRequestItems(
+            @RequestHeader("X-Sharer-User-Id") Integer userId) {
+        return requestClient.streamAllRequestItems(userId);
+    }
+
     @GetMapping("/{requestId}")
-    public ResponseEntity<Object> getRequestById(@RequestHeader("X-Sharer-User-Id") Integer userId,
-                                                 @PathVariable Integer requestId) {
+    public Mono<ResponseEntity<byte[]>> getRequestById(@RequestHeader("X-Sharer-User-Id") Integer userId,
+                                                       @PathVariable Integer requestId) {
         return requestClient.getRequestById(userId, requestId);
     }
 }
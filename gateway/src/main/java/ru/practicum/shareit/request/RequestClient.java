@@ -2,12 +2,15 @@ package ru.practicum.shareit.request;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ResponseCache;
 import ru.practicum.shareit.request.dto.RequestDto;
 
 import java.util.Map;
@@ -18,24 +21,27 @@ public class RequestClient extends BaseClient {
     private static final String API_PREFIX = "/requests";
 
     @Autowired
-    public RequestClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public RequestClient(@Value("${shareit-server.url}") String serverUrl, WebClient.Builder builder,
+                         ClientHttpConnector shareitServerConnector, ResponseCache responseCache) {
         super(
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .uriBuilderFactory(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
+                        .clientConnector(shareitServerConnector)
+                        .build(),
+                responseCache,
+                API_PREFIX
         );
     }
 
-    public ResponseEntity<Object> createItemRequest(Integer creatorId, RequestDto request) {
+    public Mono<ResponseEntity<byte[]>> createItemRequest(Integer creatorId, RequestDto request) {
         return post("", creatorId, request);
     }
 
-    public ResponseEntity<Object> getItemRequestForUser(Integer creatorId) {
+    public Mono<ResponseEntity<byte[]>> getItemRequestForUser(Integer creatorId) {
         return get("", creatorId);
     }
 
-    public ResponseEntity<Object> getItemsWithPagination(Integer from, Integer size, Integer userId) {
+    public Mono<ResponseEntity<byte[]>> getItemsWithPagination(Integer from, Integer size, Integer userId) {
         if (from == null) {
             return get("/all", userId);
         } else {
@@ -47,7 +53,11 @@ public class RequestClient extends BaseClient {
         }
     }
 
-    public ResponseEntity<Object> getRequestById(Integer userId, Integer requestId) {
+    public Mono<ResponseEntity<Flux<String>>> streamAllRequestItems(Integer userId) {
+        return stream("/all", userId, null);
+    }
+
+    public Mono<ResponseEntity<byte[]>> getRequestById(Integer userId, Integer requestId) {
         return get("/" + requestId, userId);
     }
 }
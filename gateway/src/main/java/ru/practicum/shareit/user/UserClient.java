@@ -2,12 +2,15 @@ package ru.practicum.shareit.user;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ResponseCache;
 import ru.practicum.shareit.user.dto.UserDto;
 
 @Service
@@ -15,32 +18,39 @@ public class UserClient extends BaseClient {
     private static final String API_PREFIX = "/users";
 
     @Autowired
-    public UserClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public UserClient(@Value("${shareit-server.url}") String serverUrl, WebClient.Builder builder,
+                      ClientHttpConnector shareitServerConnector, ResponseCache responseCache) {
         super(
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .uriBuilderFactory(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
+                        .clientConnector(shareitServerConnector)
+                        .build(),
+                responseCache,
+                API_PREFIX
         );
     }
 
-    public ResponseEntity<Object> createUser(UserDto userDto) {
+    public Mono<ResponseEntity<byte[]>> createUser(UserDto userDto) {
         return post("", userDto);
     }
 
-    public ResponseEntity<Object> updateUser(Integer userId, UserDto userDto) {
+    public Mono<ResponseEntity<byte[]>> updateUser(Integer userId, UserDto userDto) {
         return patch("/" + userId, userDto);
     }
 
-    public ResponseEntity<Object> getUserById(Integer userId) {
+    public Mono<ResponseEntity<byte[]>> getUserById(Integer userId) {
         return get("/" + userId);
     }
 
-    public ResponseEntity<Object> getAllUsers() {
+    public Mono<ResponseEntity<byte[]>> getAllUsers() {
         return get("");
     }
 
-    public ResponseEntity<Object> deleteUserById(Integer userId) {
+    public Mono<ResponseEntity<Flux<String>>> streamAllUsers() {
+        return stream("", null, null);
+    }
+
+    public Mono<ResponseEntity<byte[]>> deleteUserById(Integer userId) {
         return delete("/" + userId);
     }
 }
@@ -6,6 +6,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.marker.ValidUserUpdate;
 
@@ -21,29 +24,34 @@ public class UserController {
     private final UserClient userClient;
 
     @PostMapping
-    public ResponseEntity<Object> createUser(@RequestBody @Valid UserDto userDto) {
+    public Mono<ResponseEntity<byte[]>> createUser(@RequestBody @Valid UserDto userDto) {
         log.info("Получен запрос на создание нового пользователя {}", userDto);
         return userClient.createUser(userDto);
     }
 
     @PatchMapping("/{userId}")
-    public ResponseEntity<Object> updateUser(@PathVariable Integer userId,
-                                             @RequestBody @Validated(ValidUserUpdate.class) UserDto userDto) {
+    public Mono<ResponseEntity<byte[]>> updateUser(@PathVariable Integer userId,
+                                                   @RequestBody @Validated(ValidUserUpdate.class) UserDto userDto) {
         return userClient.updateUser(userId, userDto);
     }
 
     @GetMapping("/{userId}")
-    public ResponseEntity<Object> getUserById(@PathVariable Integer userId) {
+    public Mono<ResponseEntity<byte[]>> getUserById(@PathVariable Integer userId) {
         return userClient.getUserById(userId);
     }
 
     @GetMapping
-    public ResponseEntity<Object> getAllUsers() {
+    public Mono<ResponseEntity<byte[]>> getAllUsers() {
         return userClient.getAllUsers();
     }
 
+    @GetMapping(produces = BaseClient.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<String>>> streamAllUsers() {
+        return userClient.streamAllUsers();
+    }
+
     @DeleteMapping("/{userId}")
-    public ResponseEntity<Object> deleteUserById(@PathVariable Integer userId) {
+    public Mono<ResponseEntity<byte[]>> deleteUserById(@PathVariable Integer userId) {
         return userClient.deleteUserById(userId);
     }
 }
\ No newline at end of file
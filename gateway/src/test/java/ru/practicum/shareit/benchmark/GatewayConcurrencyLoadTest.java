@@ -0,0 +1,105 @@
+package ru.practicum.shareit.benchmark;
+
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Запуск: mvn test -pl gateway -Dtest=GatewayConcurrencyLoadTest -Dshareit.benchmark=true
+//[-Dshareit.benchmark.requests=2000]
+//Сервер подменен заглушкой, отвечающей с задержкой. У Tomcat всего TOMCAT_THREADS потоков, но одновременно
+//обрабатываемых запросов должно быть гораздо больше: поток не ждет ответа сервера
+@Slf4j
+@EnabledIfSystemProperty(named = "shareit.benchmark", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.tomcat.threads.max=" + GatewayConcurrencyLoadTest.TOMCAT_THREADS,
+        "server.tomcat.threads.min-spare=" + GatewayConcurrencyLoadTest.TOMCAT_THREADS,
+        //Все соединения открываются разом и не должны отбрасываться из очереди на accept
+        "server.tomcat.accept-count=10000",
+        "shareit-server.http-client.max-connections=10000",
+        "shareit-server.http-client.connection-request-timeout=30s",
+        "logging.level.org.springframework.web.reactive.function.client.ExchangeFunctions=INFO"})
+public class GatewayConcurrencyLoadTest {
+    static final int TOMCAT_THREADS = 10;
+    private static final int REQUESTS = Integer.getInteger("shareit.benchmark.requests", 1000);
+    private static final Duration SERVER_DELAY = Duration.ofMillis(500);
+
+    private static final AtomicInteger inFlight = new AtomicInteger();
+    private static final AtomicInteger maxInFlight = new AtomicInteger();
+    private static final DisposableServer shareitServer = HttpServer.create()
+            .port(0)
+            .option(ChannelOption.SO_BACKLOG, 10_000)
+            .route(routes -> routes.get("/users/{userId}", (request, response) -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                return response.header("Content-Type", "application/json")
+                        .sendString(Mono.delay(SERVER_DELAY)
+                                .doOnNext(tick -> inFlight.decrementAndGet())
+                                .map(tick -> "{\"id\":" + request.param("userId") + ",\"name\":\"user\"}"));
+            }))
+            .bindNow();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void shareitServerUrl(DynamicPropertyRegistry registry) {
+        registry.add("shareit-server.url", () -> "http://localhost:" + shareitServer.port());
+    }
+
+    @AfterAll
+    static void stopServer() {
+        shareitServer.disposeNow();
+    }
+
+    @Test
+    public void gatewayHandlesMoreRequestsThanTomcatThreads() {
+        ConnectionProvider connections = ConnectionProvider.builder("load-test")
+                .maxConnections(REQUESTS)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        HttpClient client = HttpClient.create(connections).baseUrl("http://localhost:" + port);
+
+        sendConcurrently(client, REQUESTS / 10);
+        maxInFlight.set(0);
+
+        long start = System.nanoTime();
+        List<Integer> statuses = sendConcurrently(client, REQUESTS);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        connections.disposeLater().block();
+
+        //Блокирующему gateway понадобилось бы REQUESTS / TOMCAT_THREADS задержек сервера подряд
+        double blockingSeconds = (double) REQUESTS / TOMCAT_THREADS * SERVER_DELAY.toMillis() / 1000;
+        log.info("Requests: {}, Tomcat threads: {}, max in flight: {}, elapsed: {} s (thread-per-request: >= {} s)",
+                REQUESTS, TOMCAT_THREADS, maxInFlight.get(), String.format("%.2f", seconds), blockingSeconds);
+
+        assertTrue(statuses.stream().allMatch(status -> status == 200), "Не все запросы выполнены успешно");
+        assertTrue(maxInFlight.get() > TOMCAT_THREADS * 10,
+                "Одновременно обрабатывается не больше запросов, чем потоков у Tomcat");
+        assertTrue(seconds < blockingSeconds / 5, "Gateway обрабатывает запросы не быстрее блокирующего");
+    }
+
+    private List<Integer> sendConcurrently(HttpClient client, int requests) {
+        return Flux.range(1, requests)
+                .flatMap(userId -> client.get().uri("/users/" + userId)
+                        .responseSingle((response, body) -> body.then(Mono.just(response.status().code()))), requests)
+                .collectList()
+                .block(Duration.ofMinutes(5));
+    }
+}
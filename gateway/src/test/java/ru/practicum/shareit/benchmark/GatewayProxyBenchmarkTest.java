@@ -0,0 +1,92 @@
+package ru.practicum.shareit.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Запуск: mvn test -pl gateway -Dtest=GatewayProxyBenchmarkTest -Dshareit.benchmark=true [-Dshareit.benchmark.items=100]
+//Сравнивается память, выделяемая на один проксируемый запрос: разбор ответа сервера в Object с повторной
+//сериализацией и передача тела массивом байт. Сервер подменен фабрикой запросов с готовым ответом
+@Slf4j
+@EnabledIfSystemProperty(named = "shareit.benchmark", matches = "true")
+public class GatewayProxyBenchmarkTest {
+    private static final int ITEMS = Integer.getInteger("shareit.benchmark.items", 100);
+    private static final int REQUESTS = Integer.getInteger("shareit.benchmark.requests", 20_000);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void byteProxyAllocatesLessThanObjectTree() throws Exception {
+        byte[] serverBody = serverBody();
+        String serverJson = new String(serverBody, StandardCharsets.UTF_8);
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(serverJson)
+                        .build()))
+                .build();
+
+        Supplier<byte[]> objectTree = () -> {
+            Object response = webClient.get().uri("http://server/items")
+                    .exchangeToMono(serverResponse -> serverResponse.toEntity(Object.class))
+                    .block()
+                    .getBody();
+            try {
+                return objectMapper.writeValueAsBytes(response);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        Supplier<byte[]> bytes = () -> webClient.get().uri("http://server/items")
+                .exchangeToMono(serverResponse -> serverResponse.toEntity(byte[].class))
+                .block()
+                .getBody();
+        assertArrayEquals(serverBody, bytes.get());
+
+        double objectTreeBytes = measure(objectTree);
+        double proxyBytes = measure(bytes);
+        log.info("Items in response: {}, body {} bytes, Object: {} bytes/request, byte[]: {} bytes/request",
+                ITEMS, serverBody.length, String.format("%.0f", objectTreeBytes), String.format("%.0f", proxyBytes));
+
+        assertTrue(proxyBytes < objectTreeBytes,
+                "Передача массивом байт выделяет не меньше памяти, чем разбор в Object");
+    }
+
+    private double measure(Supplier<byte[]> proxy) {
+        for (int i = 0; i < REQUESTS / 10; i++) {
+            proxy.get();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < REQUESTS; i++) {
+            proxy.get();
+        }
+        return (double) (threads.getThreadAllocatedBytes(threadId) - start) / REQUESTS;
+    }
+
+    private byte[] serverBody() {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 1; i <= ITEMS; i++) {
+            if (i > 1) body.append(',');
+            body.append("{\"id\":").append(i)
+                    .append(",\"name\":\"Дрель ").append(i).append("\",\"description\":\"Ударная дрель\"")
+                    .append(",\"available\":true,\"lastBooking\":null,\"nextBooking\":null,\"comments\":[]}");
+        }
+        return body.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
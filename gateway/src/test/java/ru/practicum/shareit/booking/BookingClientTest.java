@@ -0,0 +1,54 @@
+package ru.practicum.shareit.booking;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.client.ResponseCache;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BookingClientTest {
+    private BookingClient bookingClient;
+
+    @BeforeEach
+    void setUp() {
+        WebClient.Builder builder = WebClient.builder()
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+                        .body("data:approved\n\n")
+                        .build()));
+        ResponseCache responseCache = new ResponseCache(100, Duration.ofSeconds(10), Duration.ofMinutes(10),
+                new SimpleMeterRegistry());
+        bookingClient = new BookingClient("http://server", builder, new ReactorClientHttpConnector(),
+                responseCache, 1, 16);
+    }
+
+    @Test
+    public void subscriptionSlotIsTakenOnSubscribeAndHeldUntilEventsEnd() {
+        Mono<ResponseEntity<Flux<ServerSentEvent<String>>>> notSubscribed = bookingClient.subscribeToEvents(1, null);
+        ResponseEntity<Flux<ServerSentEvent<String>>> open = bookingClient.subscribeToEvents(1, 2).block();
+
+        ResponseStatusException er = assertThrows(ResponseStatusException.class,
+                () -> bookingClient.subscribeToEvents(1, null).block());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, er.getStatus());
+
+        List<ServerSentEvent<String>> events = open.getBody().collectList().block();
+        assertEquals("approved", events.get(0).data());
+        assertEquals(HttpStatus.OK, notSubscribed.block().getStatusCode());
+    }
+}
@@ -0,0 +1,169 @@
+package ru.practicum.shareit.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ResponseCacheTest {
+    private static final Duration FRESH_FOR = Duration.ofSeconds(10);
+
+    private final MutableClock clock = new MutableClock();
+    private final List<ClientRequest> serverRequests = new ArrayList<>();
+    private Function<ClientRequest, ClientResponse> server;
+    private ResponseCache responseCache;
+    private TestClient itemClient;
+    private TestClient bookingClient;
+
+    @BeforeEach
+    void setUp() {
+        responseCache = new ResponseCache(100, FRESH_FOR, Duration.ofMinutes(10), clock);
+        itemClient = new TestClient(ResponseCache.ITEMS);
+        bookingClient = new TestClient(ResponseCache.BOOKINGS);
+        server = request -> ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .header(HttpHeaders.ETAG, "\"v1\"")
+                .body("{\"id\":1}")
+                .build();
+    }
+
+    @Test
+    public void freshResponseIsServedWithoutServer() {
+        ResponseEntity<byte[]> first = itemClient.get("/1", 1).block();
+        ResponseEntity<byte[]> second = itemClient.get("/1", 1).block();
+
+        assertEquals(1, serverRequests.size());
+        assertEquals("{\"id\":1}", new String(second.getBody(), StandardCharsets.UTF_8));
+        assertEquals(first.getHeaders().getETag(), second.getHeaders().getETag());
+    }
+
+    @Test
+    public void responsesAreCachedPerUserAndQuery() {
+        itemClient.get("/1", 1).block();
+        itemClient.get("/1", 2).block();
+        itemClient.get("/1?from=0", 1).block();
+
+        assertEquals(3, serverRequests.size());
+    }
+
+    @Test
+    public void queryParametersWithReservedCharactersGetDistinctKeys() {
+        String path = "/search?text={text}&from={from}";
+        itemClient.get(path, 1, Map.of("text", "x&from=0", "from", 1)).block();
+        itemClient.get(path, 1, Map.of("text", "x", "from", "0&from=1")).block();
+
+        assertEquals(2, serverRequests.size());
+    }
+
+    @Test
+    public void staleResponseIsRevalidatedWithEtag() {
+        itemClient.get("/1", 1).block();
+        clock.advance(FRESH_FOR.plusSeconds(1));
+        server = request -> ClientResponse.create(HttpStatus.NOT_MODIFIED).build();
+
+        ResponseEntity<byte[]> revalidated = itemClient.get("/1", 1).block();
+        ResponseEntity<byte[]> fresh = itemClient.get("/1", 1).block();
+
+        assertEquals(2, serverRequests.size());
+        assertEquals("\"v1\"", serverRequests.get(1).headers().getIfNoneMatch().get(0));
+        assertEquals(HttpStatus.OK, revalidated.getStatusCode());
+        assertEquals("{\"id\":1}", new String(revalidated.getBody(), StandardCharsets.UTF_8));
+        assertEquals("{\"id\":1}", new String(fresh.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void writeInvalidatesDependentResources() {
+        itemClient.get("/1", 1).block();
+        bookingClient.post("", 2, "{}").block();
+        itemClient.get("/1", 1).block();
+
+        assertEquals(3, serverRequests.size());
+        assertNull(serverRequests.get(2).headers().getFirst(HttpHeaders.IF_NONE_MATCH));
+    }
+
+    @Test
+    public void writeKeepsUnrelatedResources() {
+        responseCache.invalidate(ResponseCache.REQUESTS);
+        itemClient.get("/1", 1).block();
+        responseCache.invalidate(ResponseCache.REQUESTS);
+        itemClient.get("/1", 1).block();
+
+        assertEquals(1, serverRequests.size());
+    }
+
+    @Test
+    public void errorResponsesAreNotCached() {
+        server = request -> ClientResponse.create(HttpStatus.NOT_FOUND).build();
+
+        itemClient.get("/1", 1).block();
+        itemClient.get("/1", 1).block();
+
+        assertEquals(2, serverRequests.size());
+    }
+
+    @Test
+    public void responseReadBeforeWriteIsNotCached() {
+        long generation = responseCache.generation(ResponseCache.ITEMS);
+        responseCache.invalidate(ResponseCache.ITEMS);
+        responseCache.put(ResponseCache.ITEMS, "1 /1", ResponseEntity.ok(new byte[0]), generation);
+
+        assertNull(responseCache.get(ResponseCache.ITEMS, "1 /1"));
+    }
+
+    private class TestClient extends BaseClient {
+        TestClient(String resource) {
+            super(WebClient.builder()
+                            .baseUrl("http://server" + resource)
+                            .exchangeFunction(request -> {
+                                serverRequests.add(request);
+                                return Mono.just(server.apply(request));
+                            })
+                            .build(),
+                    responseCache,
+                    resource);
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
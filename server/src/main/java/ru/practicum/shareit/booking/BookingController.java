@@ -1,11 +1,19 @@
 package ru.practicum.shareit.booking;
 
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingCursor;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.stream.NdjsonStreamer;
 
 import java.util.Collection;
 
@@ -13,7 +21,9 @@ import java.util.Collection;
 @AllArgsConstructor
 @RequestMapping(path = "/bookings")
 public class BookingController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     private final BookingService bookingService;
+    private final NdjsonStreamer ndjsonStreamer;
 
     @PostMapping
     public BookingDto createBooking(@RequestBody Booking booking,
@@ -29,10 +39,23 @@ public class BookingController {
         return bookingService.replyToBooking(ownerId, bookingId, approved);
     }
 
+    //Подписка на новые аренды и смену их статуса вместо опроса GET /bookings/{bookingId}.
+    //Приходят события по арендам, где пользователь арендатор или владелец вещи; bookingId - только по одной аренде
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToBookingEvents(@RequestHeader("X-Sharer-User-Id") Integer userId,
+                                               @RequestParam(value = "bookingId", required = false) Integer bookingId) {
+        return bookingService.subscribeToBookingEvents(userId, bookingId);
+    }
+
+    //ETag проверяется до сборки BookingDto: на совпавший If-None-Match сразу уходит 304
     @GetMapping("/{bookingId}")
-    public BookingDto getBookingByIdForOwnerOrBooker(@RequestHeader("X-Sharer-User-Id") Integer userId,
-                                                     @PathVariable Integer bookingId) {
-        return bookingService.getBookingByIdForOwnerOrBooker(bookingId, userId);
+    public ResponseEntity<BookingDto> getBookingByIdForOwnerOrBooker(
+            @RequestHeader("X-Sharer-User-Id") Integer userId,
+            @PathVariable Integer bookingId,
+            WebRequest request) {
+        String etag = bookingService.getBookingEtag(bookingId, userId);
+        if (request.checkNotModified(etag)) return null;
+        return ResponseEntity.ok().eTag(etag).body(bookingService.getBookingByIdForOwnerOrBooker(bookingId, userId));
     }
 
     @GetMapping()
@@ -41,7 +64,7 @@ public class BookingController {
                                                         @RequestParam(value = "state", required = false,
                                                                 defaultValue = "ALL") BookingState state,
                                                         @RequestHeader("X-Sharer-User-Id") Integer userId) {
-        if (from == null) return bookingService.getAllBookingsForUser(state, userId);
+        if (from == null && size == null) return bookingService.getAllBookingsForUser(state, userId);
         return bookingService.getAllBookingsForUserWithPagination(state, userId, from, size);
     }
 
@@ -51,7 +74,50 @@ public class BookingController {
                                                         @RequestParam(value = "state", required = false,
                                                                 defaultValue = "ALL") BookingState state,
                                                         @RequestHeader("X-Sharer-User-Id") Integer ownerId) {
-        if (from == null) return bookingService.getAllBookingForOwner(state, ownerId);
+        if (from == null && size == null) return bookingService.getAllBookingForOwner(state, ownerId);
         return bookingService.getAllBookingForOwnerWithPagination(state, ownerId, from, size);
     }
-}
\ No newline at end of file
+
+    @GetMapping(produces = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllBookingsForUser(
+            @RequestParam(value = "state", required = false, defaultValue = "ALL") BookingState state,
+            @RequestHeader("X-Sharer-User-Id") Integer userId) {
+        return ndjsonStreamer.stream(bookingService.streamAllBookingsForUser(state, userId));
+    }
+
+    @GetMapping(value = "/owner", produces = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllBookingForOwner(
+            @RequestParam(value = "state", required = false, defaultValue = "ALL") BookingState state,
+            @RequestHeader("X-Sharer-User-Id") Integer ownerId) {
+        return ndjsonStreamer.stream(bookingService.streamAllBookingForOwner(state, ownerId));
+    }
+
+    //Постраничный вывод по курсору. Первая страница запрашивается с пустым cursor,
+    //курсор следующей страницы возвращается в заголовке X-Next-Cursor
+    @GetMapping(params = "cursor")
+    public ResponseEntity<Collection<BookingDto>> getBookingsForUserByCursor(
+            @RequestParam(value = "cursor") String cursor,
+            @RequestParam(value = "size", defaultValue = "10") Integer size,
+            @RequestParam(value = "state", required = false, defaultValue = "ALL") BookingState state,
+            @RequestHeader("X-Sharer-User-Id") Integer userId) {
+        return toCursorResponse(bookingService.getBookingsForUserByCursor(state, userId, cursor, size));
+    }
+
+    @GetMapping(value = "/owner", params = "cursor")
+    public ResponseEntity<Collection<BookingDto>> getBookingsForOwnerByCursor(
+            @RequestParam(value = "cursor") String cursor,
+            @RequestParam(value = "size", defaultValue = "10") Integer size,
+            @RequestParam(value = "state", required = false, defaultValue = "ALL") BookingState state,
+            @RequestHeader("X-Sharer-User-Id") Integer ownerId) {
+        return toCursorResponse(bookingService.getBookingsForOwnerByCursor(state, ownerId, cursor, size));
+    }
+
+    private ResponseEntity<Collection<BookingDto>> toCursorResponse(Slice<BookingDto> bookings) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (bookings.hasNext()) {
+            BookingDto last = bookings.getContent().get(bookings.getNumberOfElements() - 1);
+            response.header(NEXT_CURSOR_HEADER, BookingCursor.of(last).encode());
+        }
+        return response.body(bookings.getContent());
+    }
+}
@@ -0,0 +1,10 @@
+package ru.practicum.shareit.booking.admission;
+
+//Подтверждение аренды так, чтобы у вещи не оказалось двух пересекающихся подтвержденных аренд,
+//в том числе при одновременных подтверждениях. Реализация выбирается свойством shareit.booking.admission:
+//constraint - ограничение исключения в PostgreSQL, lock - блокировка по вещи в памяти процесса (H2, тесты)
+public interface BookingAdmission {
+
+    //false - аренда уже не ждет ответа или пересекается с подтвержденной арендой той же вещи
+    boolean approve(Integer bookingId, Integer itemId);
+}
@@ -0,0 +1,28 @@
+package ru.practicum.shareit.booking.admission;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+//Условный update не видит незафиксированное подтверждение из соседней транзакции.
+//Такую гонку ловит ограничение BOOKINGS_APPROVED_NO_OVERLAP: второе подтверждение не фиксируется
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "shareit.booking.admission", havingValue = "constraint", matchIfMissing = true)
+public class ConstraintBookingAdmission implements BookingAdmission {
+    private final BookingRepository bookingRepository;
+
+    @Override
+    public boolean approve(Integer bookingId, Integer itemId) {
+        try {
+            return bookingRepository.approveIfNoOverlap(bookingId) == 1;
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Аренда {} пересекается с одновременно подтвержденной арендой вещи {}", bookingId, itemId);
+            return false;
+        }
+    }
+}
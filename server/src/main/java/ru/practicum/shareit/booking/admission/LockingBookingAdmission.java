@@ -0,0 +1,40 @@
+package ru.practicum.shareit.booking.admission;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Подтверждения аренд одной вещи выполняются по очереди под блокировкой, update фиксируется до ее снятия.
+//Блокировок фиксированное число, вещь попадает на одну из них по id: подтверждения разных вещей
+//обычно не ждут друг друга, а память не растет с числом вещей.
+//Защищает только внутри одного процесса, поэтому годится для H2 и тестов, но не для нескольких серверов
+@Component
+@ConditionalOnProperty(name = "shareit.booking.admission", havingValue = "lock")
+public class LockingBookingAdmission implements BookingAdmission {
+    private final BookingRepository bookingRepository;
+    private final Lock[] stripes;
+
+    public LockingBookingAdmission(BookingRepository bookingRepository,
+                                   @Value("${shareit.booking.admission.lock-stripes}") int lockStripes) {
+        this.bookingRepository = bookingRepository;
+        this.stripes = new Lock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public boolean approve(Integer bookingId, Integer itemId) {
+        Lock lock = stripes[Math.floorMod(itemId, stripes.length)];
+        lock.lock();
+        try {
+            return bookingRepository.approveIfNoOverlap(bookingId) == 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
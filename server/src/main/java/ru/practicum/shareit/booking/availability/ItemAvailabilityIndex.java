@@ -0,0 +1,110 @@
+package ru.practicum.shareit.booking.availability;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+//Подтвержденные и ожидающие аренды вещей в памяти процесса, чтобы занятость вещи в периоде
+//проверялась бинарным поиском, а не перебором ее аренд в бд.
+//Аренды вещи загружаются при первой проверке, уже закончившиеся не загружаются, поэтому
+//проверять можно только периоды, которые еще не начались. BookingServiceImpl сообщает о каждой
+//новой аренде и ответе на нее. Изменения, сделанные другими серверами, здесь не видны,
+//их задержку ограничивает expire-after-write; окончательно пересечения проверяет BookingAdmission
+@Slf4j
+@Component
+public class ItemAvailabilityIndex {
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final int UPDATE_STRIPES = 64;
+
+    private final BookingRepository bookingRepository;
+    private final Cache<Integer, ItemBookingIntervals> intervals;
+    //Счетчики изменений по группам вещей: загруженные из бд аренды не сохраняются,
+    //если во время загрузки аренды вещи из той же группы менялись
+    private final AtomicLongArray updates = new AtomicLongArray(UPDATE_STRIPES);
+
+    public ItemAvailabilityIndex(BookingRepository bookingRepository,
+                                 @Value("${shareit.item-availability.max-items}") long maxItems,
+                                 @Value("${shareit.item-availability.expire-after-write}") Duration expireAfterWrite) {
+        this.bookingRepository = bookingRepository;
+        this.intervals = Caffeine.newBuilder()
+                .maximumSize(maxItems)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    //Оба признака считаются по одному набору аренд вещи, поэтому согласованы между собой
+    public PeriodOccupancy getOccupancy(Integer itemId, LocalDateTime start, LocalDateTime end) {
+        ItemBookingIntervals itemIntervals = getIntervals(List.of(itemId)).get(itemId);
+        return new PeriodOccupancy(itemIntervals.overlaps(Status.APPROVED, start, end),
+                itemIntervals.overlaps(Status.WAITING, start, end));
+    }
+
+    //Вещи из списка, занятые подтвержденными арендами в периоде. Аренды вещей,
+    //которых еще нет в индексе, загружаются одним запросом на пачку вещей
+    public Set<Integer> findBooked(Collection<Integer> itemIds, LocalDateTime start, LocalDateTime end) {
+        return getIntervals(itemIds).entrySet().stream()
+                .filter(entry -> entry.getValue().overlaps(Status.APPROVED, start, end))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    //Вызывается после записи аренды в бд. Вещи, которых нет в индексе, загрузят аренду из бд при проверке
+    public void update(Booking booking) {
+        updates.incrementAndGet(stripe(booking.getItemId()));
+        intervals.asMap().computeIfPresent(booking.getItemId(), (itemId, current) -> current.with(booking));
+    }
+
+    private Map<Integer, ItemBookingIntervals> getIntervals(Collection<Integer> itemIds) {
+        Map<Integer, ItemBookingIntervals> result = new HashMap<>(intervals.getAllPresent(itemIds));
+        List<Integer> missing = itemIds.stream()
+                .filter(itemId -> !result.containsKey(itemId))
+                .distinct()
+                .collect(Collectors.toList());
+        for (int from = 0; from < missing.size(); from += LOAD_BATCH_SIZE) {
+            result.putAll(load(missing.subList(from, Math.min(from + LOAD_BATCH_SIZE, missing.size()))));
+        }
+        return result;
+    }
+
+    private Map<Integer, ItemBookingIntervals> load(List<Integer> itemIds) {
+        long[] updatesBefore = new long[UPDATE_STRIPES];
+        for (int i = 0; i < UPDATE_STRIPES; i++) {
+            updatesBefore[i] = updates.get(i);
+        }
+        Map<Integer, List<Booking>> bookings = bookingRepository
+                .findActiveBookingsByItemIds(itemIds, LocalDateTime.now()).stream()
+                .collect(Collectors.groupingBy(Booking::getItemId));
+        Map<Integer, ItemBookingIntervals> loaded = new HashMap<>();
+        for (Integer itemId : itemIds) {
+            ItemBookingIntervals itemIntervals = ItemBookingIntervals.of(bookings.getOrDefault(itemId, List.of()));
+            int stripe = stripe(itemId);
+            //Проверка внутри compute: update той же вещи либо уже сменил счетчик, либо дождется записи
+            ItemBookingIntervals cached = intervals.asMap().compute(itemId, (id, current) -> {
+                if (current != null) return current;
+                return updates.get(stripe) == updatesBefore[stripe] ? itemIntervals : null;
+            });
+            loaded.put(itemId, cached != null ? cached : itemIntervals);
+        }
+        log.debug("Загружены аренды {} вещей", itemIds.size());
+        return loaded;
+    }
+
+    private static int stripe(Integer itemId) {
+        return Math.floorMod(itemId, UPDATE_STRIPES);
+    }
+}
@@ -0,0 +1,100 @@
+package ru.practicum.shareit.booking.availability;
+
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+//Неизменяемый набор подтвержденных и ожидающих аренд одной вещи, отсортированный по началу.
+//Для каждого префикса хранится наибольшее окончание аренд каждого статуса: аренда пересекается
+//с периодом [start, end), если среди начавшихся раньше end есть оканчивающаяся позже start.
+//Поэтому проверка - один бинарный поиск, а изменение собирает новый набор целиком
+final class ItemBookingIntervals {
+    private final Interval[] intervals;
+    private final LocalDateTime[] approvedMaxEnd;
+    private final LocalDateTime[] waitingMaxEnd;
+
+    private ItemBookingIntervals(Collection<Interval> intervals) {
+        this.intervals = intervals.toArray(new Interval[0]);
+        Arrays.sort(this.intervals, Comparator.comparing((Interval interval) -> interval.start)
+                .thenComparing(interval -> interval.bookingId));
+        this.approvedMaxEnd = maxEnds(Status.APPROVED);
+        this.waitingMaxEnd = maxEnds(Status.WAITING);
+    }
+
+    static ItemBookingIntervals of(Collection<Booking> bookings) {
+        List<Interval> intervals = new ArrayList<>(bookings.size());
+        for (Booking booking : bookings) {
+            if (isIndexed(booking.getStatus())) intervals.add(new Interval(booking));
+        }
+        return new ItemBookingIntervals(intervals);
+    }
+
+    private static boolean isIndexed(Status status) {
+        return status == Status.APPROVED || status == Status.WAITING;
+    }
+
+    boolean overlaps(Status status, LocalDateTime start, LocalDateTime end) {
+        int startedBefore = countStartedBefore(end);
+        if (startedBefore == 0) return false;
+        LocalDateTime maxEnd = (status == Status.APPROVED ? approvedMaxEnd : waitingMaxEnd)[startedBefore - 1];
+        return maxEnd != null && maxEnd.isAfter(start);
+    }
+
+    //Аренда заменяет прежнюю запись с тем же id, поэтому повторное добавление ничего не меняет
+    ItemBookingIntervals with(Booking booking) {
+        List<Interval> result = new ArrayList<>(intervals.length + 1);
+        for (Interval interval : intervals) {
+            if (!Objects.equals(interval.bookingId, booking.getId())) result.add(interval);
+        }
+        if (isIndexed(booking.getStatus())) result.add(new Interval(booking));
+        return new ItemBookingIntervals(result);
+    }
+
+    private int countStartedBefore(LocalDateTime time) {
+        int low = 0;
+        int high = intervals.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (intervals[middle].start.isBefore(time)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private LocalDateTime[] maxEnds(Status status) {
+        LocalDateTime[] maxEnds = new LocalDateTime[intervals.length];
+        LocalDateTime maxEnd = null;
+        for (int i = 0; i < intervals.length; i++) {
+            Interval interval = intervals[i];
+            if (interval.status == status && (maxEnd == null || interval.end.isAfter(maxEnd))) {
+                maxEnd = interval.end;
+            }
+            maxEnds[i] = maxEnd;
+        }
+        return maxEnds;
+    }
+
+    private static final class Interval {
+        private final Integer bookingId;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final Status status;
+
+        private Interval(Booking booking) {
+            this.bookingId = booking.getId();
+            this.start = booking.getStart();
+            this.end = booking.getEnd();
+            this.status = booking.getStatus();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ru.practicum.shareit.booking.availability;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+//Занятость вещи в периоде [start, end): booked - пересекается подтвержденная аренда,
+//requested - пересекается запрос, ожидающий ответа владельца
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class PeriodOccupancy {
+    private final boolean booked;
+    private final boolean requested;
+}
@@ -0,0 +1,46 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.springframework.http.HttpStatus;
+import ru.practicum.shareit.exception.RequestError;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+//Курсор для постраничного вывода аренд без OFFSET: позиция последней выданной аренды в порядке
+//(start desc, id desc). Для клиента это непрозрачная строка
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class BookingCursor {
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime start;
+    private final Integer id;
+
+    public static BookingCursor of(BookingDto bookingDto) {
+        return new BookingCursor(bookingDto.getStart(), bookingDto.getId());
+    }
+
+    //Пустой курсор означает запрос первой страницы
+    public static BookingCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(SEPARATOR);
+            return new BookingCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Integer.valueOf(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new RequestError(HttpStatus.BAD_REQUEST, "Некорректный курсор " + cursor);
+        }
+    }
+
+    public String encode() {
+        String value = start + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,206 @@
+package ru.practicum.shareit.booking.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.exception.RequestError;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Рассылка событий аренды по открытым SSE-подпискам арендатора и владельца вещи.
+//У каждой подписки своя очередь ограниченного размера: publish только кладет в нее событие,
+//а отправляет его общий пул потоков. Медленный клиент не задерживает replyToBooking и не копит
+//события без предела: при переполнении очереди подписка закрывается, клиент переподключается
+//и перечитывает аренду. Число открытых подписок ограничено всего и на одного пользователя
+@Slf4j
+@Component
+public class BookingEventHub {
+    public static final String STATUS_EVENT = "booking-status";
+
+    private final int maxSubscriptions;
+    private final int maxSubscriptionsPerUser;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final Map<Integer, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger openSubscriptions = new AtomicInteger();
+    private final ExecutorService sender;
+    private final ScheduledExecutorService heartbeat;
+
+    public BookingEventHub(@Value("${shareit.booking-events.max-subscriptions}") int maxSubscriptions,
+                           @Value("${shareit.booking-events.max-subscriptions-per-user}") int maxSubscriptionsPerUser,
+                           @Value("${shareit.booking-events.buffer-size}") int bufferSize,
+                           @Value("${shareit.booking-events.timeout}") Duration timeout,
+                           @Value("${shareit.booking-events.heartbeat-interval}") Duration heartbeatInterval,
+                           @Value("${shareit.booking-events.sender-threads}") int senderThreads) {
+        this.maxSubscriptions = maxSubscriptions;
+        this.maxSubscriptionsPerUser = maxSubscriptionsPerUser;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeout.toMillis();
+        this.sender = Executors.newFixedThreadPool(senderThreads, daemonThreads("booking-events-"));
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(daemonThreads("booking-events-heartbeat-"));
+        //Комментарий раз в интервал не дает прокси и gateway закрыть молчащее соединение
+        //и обнаруживает отключившихся клиентов: запись в закрытое соединение завершает подписку
+        long interval = heartbeatInterval.toMillis();
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeat, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    //bookingId = null - события по всем арендам пользователя
+    public SseEmitter subscribe(Integer userId, @Nullable Integer bookingId) {
+        if (openSubscriptions.incrementAndGet() > maxSubscriptions) {
+            openSubscriptions.decrementAndGet();
+            log.warn("Отклонена подписка пользователя {} на события аренд: открыто {} подписок",
+                    userId, maxSubscriptions);
+            throw new RequestError(HttpStatus.TOO_MANY_REQUESTS, "Превышено число подписок на события аренд");
+        }
+        Subscription subscription = new Subscription(userId, bookingId, new SseEmitter(timeoutMillis));
+        AtomicBoolean added = new AtomicBoolean();
+        subscriptions.compute(userId, (id, userSubscriptions) -> {
+            Set<Subscription> result = userSubscriptions != null ? userSubscriptions : ConcurrentHashMap.newKeySet();
+            if (result.size() < maxSubscriptionsPerUser) {
+                added.set(result.add(subscription));
+            }
+            return result.isEmpty() ? null : result;
+        });
+        if (!added.get()) {
+            openSubscriptions.decrementAndGet();
+            log.warn("Отклонена подписка пользователя {} на события аренд: открыто {} подписок пользователя",
+                    userId, maxSubscriptionsPerUser);
+            throw new RequestError(HttpStatus.TOO_MANY_REQUESTS,
+                    "Превышено число подписок пользователя " + userId + " на события аренд");
+        }
+        SseEmitter emitter = subscription.emitter;
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.close());
+        log.info("Пользователь {} подписался на события аренд, bookingId = {}", userId, bookingId);
+        return emitter;
+    }
+
+    public void publish(BookingStatusEvent event) {
+        log.debug("Событие аренды {}", event);
+        for (Integer userId : List.of(event.getBookerId(), event.getOwnerId())) {
+            Set<Subscription> userSubscriptions = subscriptions.get(userId);
+            if (userSubscriptions == null) continue;
+            userSubscriptions.stream()
+                    .filter(subscription -> subscription.accepts(event))
+                    //Построитель события изменяется при отправке, поэтому у каждой подписки свой
+                    .forEach(subscription -> subscription.offer(SseEmitter.event()
+                            .name(STATUS_EVENT)
+                            .data(event, MediaType.APPLICATION_JSON)));
+        }
+    }
+
+    public int getOpenSubscriptions() {
+        return openSubscriptions.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        sender.shutdownNow();
+        subscriptions.values().forEach(userSubscriptions -> userSubscriptions
+                .forEach(subscription -> subscription.emitter.complete()));
+    }
+
+    private void sendHeartbeat() {
+        subscriptions.values().forEach(userSubscriptions -> userSubscriptions.stream()
+                .filter(Subscription::isIdle)
+                .forEach(subscription -> subscription.offer(SseEmitter.event().comment("heartbeat"))));
+    }
+
+    private static CustomizableThreadFactory daemonThreads(String prefix) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    private final class Subscription {
+        private final Integer userId;
+        @Nullable
+        private final Integer bookingId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        //Очередь подписки разбирает не больше одного потока, поэтому события приходят клиенту по порядку
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscription(Integer userId, @Nullable Integer bookingId, SseEmitter emitter) {
+            this.userId = userId;
+            this.bookingId = bookingId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private boolean accepts(BookingStatusEvent event) {
+            return bookingId == null || Objects.equals(bookingId, event.getBookingId());
+        }
+
+        private boolean isIdle() {
+            return queue.isEmpty() && !draining.get();
+        }
+
+        private void offer(SseEmitter.SseEventBuilder event) {
+            if (closed.get()) return;
+            if (!queue.offer(event)) {
+                log.warn("Очередь событий пользователя {} переполнена, подписка закрыта", userId);
+                close();
+                emitter.complete();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed.get() && (event = queue.poll()) != null) {
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Подписка пользователя {} на события аренд закрыта клиентом", userId);
+                close();
+                emitter.completeWithError(e);
+            } finally {
+                draining.set(false);
+            }
+            //Событие могло прийти между последним poll и сбросом флага
+            if (!closed.get() && !queue.isEmpty()) scheduleDrain();
+        }
+
+        private void close() {
+            if (!closed.compareAndSet(false, true)) return;
+            queue.clear();
+            subscriptions.computeIfPresent(userId, (id, userSubscriptions) -> {
+                userSubscriptions.remove(this);
+                return userSubscriptions.isEmpty() ? null : userSubscriptions;
+            });
+            openSubscriptions.decrementAndGet();
+        }
+    }
+}
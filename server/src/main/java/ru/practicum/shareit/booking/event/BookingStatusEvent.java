@@ -0,0 +1,19 @@
+package ru.practicum.shareit.booking.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import ru.practicum.shareit.booking.model.Status;
+
+//Событие о новой аренде или смене ее статуса. Полную аренду клиент при необходимости
+//перечитывает через GET /bookings/{bookingId}, который отвечает 304, пока она не изменилась
+@Getter
+@ToString
+@AllArgsConstructor
+public class BookingStatusEvent {
+    private Integer bookingId;
+    private Integer itemId;
+    private Integer bookerId;
+    private Integer ownerId;
+    private Status status;
+}
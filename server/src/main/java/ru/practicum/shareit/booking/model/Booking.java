@@ -1,5 +1,6 @@
 package ru.practicum.shareit.booking.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
@@ -29,4 +30,9 @@ public class Booking {
     private Integer bookerId;
     @Enumerated(EnumType.STRING)
     private Status status;
+    //Растет вместе со сменой статуса (BookingRepository.updateBookingStatus) и при изменении арендатора
+    //В JSON не выводится: клиенту версия приходит в ETag
+    @JsonIgnore
+    @Column(insertable = false, updatable = false)
+    private long version;
 }
@@ -0,0 +1,8 @@
+package ru.practicum.shareit.booking.model;
+
+//Число подтвержденных аренд вещи и сколько из них уже началось
+public interface BookingCounts {
+    long getApproved();
+
+    long getStarted();
+}
@@ -0,0 +1,13 @@
+package ru.practicum.shareit.booking.model;
+
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+//Бронирование вместе с вещью и арендатором, загруженные одним запросом
+public interface BookingDetails {
+    Booking getBooking();
+
+    Item getItem();
+
+    User getBooker();
+}
@@ -0,0 +1,12 @@
+package ru.practicum.shareit.booking.model;
+
+//Версии бронирования и вложенной в ответ вещи вместе с участниками, которым бронирование доступно
+public interface BookingVersion {
+    Integer getBookerId();
+
+    Integer getOwnerId();
+
+    long getBookingVersion();
+
+    long getItemVersion();
+}
@@ -0,0 +1,10 @@
+package ru.practicum.shareit.booking.model;
+
+import ru.practicum.shareit.item.model.Item;
+
+//Вещь и число ее подтвержденных аренд, пересекающихся с запрошенным периодом, загруженные одним запросом
+public interface ItemForBooking {
+    Item getItem();
+
+    long getApprovedOverlaps();
+}
@@ -1,94 +1,95 @@
 package ru.practicum.shareit.booking.repository;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingCounts;
+import ru.practicum.shareit.booking.model.BookingDetails;
+import ru.practicum.shareit.booking.model.BookingVersion;
+import ru.practicum.shareit.booking.model.ItemForBooking;
 import ru.practicum.shareit.booking.model.Status;
 
 import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.Optional;
 
 @Repository
-public interface BookingRepository extends JpaRepository<Booking, Integer> {
-
-    Collection<Booking> getBookingsByBookerIdOrderByStartDesc(Integer bookerId);
-
-    Page<Booking> getBookingsByBookerIdOrderByStartDesc(Integer bookerId, Pageable pageable);
-
-    @Query("select b from Booking b " +
-            "left join Item i on i.id = b.itemId where i.ownerId =?1 order by b.start desc")
-    Collection<Booking> getBookingsByOwnerId(Integer ownerId);
-
-    @Query("select b from Booking b " +
-            "left join Item i on i.id = b.itemId where i.ownerId =?1 order by b.start desc")
-    Page<Booking> getBookingsByOwnerId(Integer ownerId, Pageable pageable);
-
-    @Query("select b from Booking b where b.bookerId = ?1 and b.start >= ?2 order by b.start desc")
-    Collection<Booking> getFutureBookingsForUser(Integer bookerId, LocalDateTime now);
-
-    @Query("select b from Booking b where b.bookerId = ?1 and b.start >= ?2 order by b.start desc")
-    Page<Booking> getFutureBookingsForUser(Integer bookerId, LocalDateTime now, Pageable pageable);
-
-    @Query("select b from Booking b where b.bookerId = ?1 " +
-            "and b.start <= current_timestamp and b.end >= current_timestamp order by b.start desc")
-    Collection<Booking> getCurrentBookingForUser(Integer bookerId);
-
-    @Query("select b from Booking b where b.bookerId = ?1 " +
-            "and b.start <= current_timestamp and b.end >= current_timestamp order by b.start desc")
-    Page<Booking> getCurrentBookingForUser(Integer bookerId, Pageable pageable);
-
-    Collection<Booking> getBookingsByBookerIdAndStatus(Integer bookerId, Status status);
-
-    Page<Booking> getBookingsByBookerIdAndStatus(Integer bookerId, Status status, Pageable pageable);
-
-    Collection<Booking> getBookingsByBookerIdAndEndBefore(Integer bookerId, LocalDateTime now);
-
-    Page<Booking> getBookingsByBookerIdAndEndBefore(Integer bookerId, LocalDateTime now, Pageable pageable);
-
-    @Query("select b from Booking b left join Item i on b.itemId = i.id " +
-            "where i.ownerId = ?1 and b.start >= current_timestamp " +
-            "order by b.start desc")
-    Collection<Booking> getFutureBookingForOwner(Integer ownerId);
-
-    @Query("select b from Booking b left join Item i on b.itemId = i.id " +
-            "where i.ownerId = ?1 and b.start >= current_timestamp " +
-            "order by b.start desc")
-    Page<Booking> getFutureBookingForOwner(Integer ownerId, Pageable pageable);
-
-    @Query("select b from Booking b " +
-            "left join Item i on b.itemId = i.id where i.ownerId = ?1 and b.start <= current_timestamp " +
-            "and b.end >= current_timestamp order by b.start desc")
-    Collection<Booking> getCurrentBookingForOwner(Integer ownerId);
-
-    @Query("select b from Booking b " +
-            "left join Item i on b.itemId = i.id where i.ownerId = ?1 and b.start <= current_timestamp " +
-            "and b.end >= current_timestamp order by b.start desc")
-    Page<Booking> getCurrentBookingForOwner(Integer ownerId, Pageable pageable);
-
-    @Query("select b from Booking b " +
-            "left join Item i on b.itemId = i.id " +
-            "where i.ownerId = ?1 and b.status = ?2 order by b.start desc")
-    Collection<Booking> getBookingForOwnerByStatus(Integer ownerId, Status status);
-
-    @Query("select b from Booking b " +
-            "left join Item i on b.itemId = i.id " +
-            "where i.ownerId = ?1 and b.status = ?2 order by b.start desc")
-    Page<Booking> getBookingForOwnerByStatus(Integer ownerId, Status status, Pageable pageable);
-
-    Collection<Booking> getBookingsByItemIdOrderByStartAsc(Integer itemId);
-
-    Collection<Booking> getBookingsByBookerIdAndItemId(Integer bookerId, Integer itemId);
-
-    @Query("select b from Booking b " +
-            "left join Item i on b.itemId = i.id " +
-            "where i.ownerId = ?1 and b.end <= ?2 order by b.start desc")
-    Collection<Booking> getPastBookingForByOwnerId(Integer ownerId, LocalDateTime now);
-
-    @Query("select b from Booking b " +
-            "left join Item i on b.itemId = i.id " +
-            "where i.ownerId = ?1 and b.end <= ?2 order by b.start desc")
-    Page<Booking> getPastBookingForByOwnerId(Integer ownerId, LocalDateTime now, Pageable pageable);
+public interface BookingRepository extends JpaRepository<Booking, Integer>, BookingSeekRepository {
+
+    @Query("select b as booking, i as item, u as booker from Booking b " +
+            "join Item i on i.id = b.itemId join User u on u.id = b.bookerId where b.id = ?1")
+    Optional<BookingDetails> findDetailsById(Integer bookingId);
+
+    //Статус меняется, только если текущий статус равен ожидаемому, иначе вернется 0
+    @Transactional
+    @Modifying
+    @Query("update Booking b set b.status = ?3, b.version = b.version + 1 where b.id = ?1 and b.status = ?2")
+    int updateBookingStatus(Integer bookingId, Status expected, Status status);
+
+    //Подтверждение ожидающей аренды, если у вещи нет пересекающейся с ней подтвержденной аренды, иначе вернется 0.
+    //Само по себе условие не защищает от одновременных подтверждений, это делает BookingAdmission
+    @Transactional
+    @Modifying
+    @Query(value = "update bookings b set status = 'APPROVED', version = version + 1 " +
+            "where b.id = ?1 and b.status = 'WAITING' and not exists (select 1 from bookings o " +
+            "where o.item_id = b.item_id and o.status = 'APPROVED' " +
+            "and o.start_date < b.end_date and o.end_date > b.start_date)", nativeQuery = true)
+    int approveIfNoOverlap(Integer bookingId);
+
+    @Query("select i as item, (select count(b) from Booking b where b.itemId = i.id and b.status = 'APPROVED' " +
+            "and b.start < ?3 and b.end > ?2) as approvedOverlaps from Item i where i.id = ?1")
+    Optional<ItemForBooking> findItemForBooking(Integer itemId, LocalDateTime start, LocalDateTime end);
+
+    //Аренды, которые могут пересечься с будущим периодом: для ItemAvailabilityIndex
+    @Query("select b from Booking b where b.itemId in ?1 and b.status in ('APPROVED', 'WAITING') and b.end > ?2")
+    Collection<Booking> findActiveBookingsByItemIds(Collection<Integer> itemIds, LocalDateTime now);
+
+    @Query("select b.bookerId as bookerId, i.ownerId as ownerId, b.version as bookingVersion, " +
+            "i.version as itemVersion from Booking b join Item i on i.id = b.itemId where b.id = ?1")
+    Optional<BookingVersion> findVersionById(Integer bookingId);
+
+    //Арендатор целиком входит в ответ по бронированию
+    @Transactional
+    @Modifying
+    @Query("update Booking b set b.version = b.version + 1 where b.bookerId = ?1")
+    void incrementVersionsForBooker(Integer bookerId);
+
+    //Последняя и следующая аренда в карточке вещи меняются, когда аренду подтверждают и когда она начинается.
+    //Подтвержденная аренда больше не меняет статус, поэтому обоих счетчиков достаточно, чтобы заметить смену
+    @Query("select count(b) as approved, coalesce(sum(case when b.start < ?2 then 1 else 0 end), 0) as started " +
+            "from Booking b where b.itemId = ?1 and b.status = 'APPROVED'")
+    BookingCounts countApprovedBookings(Integer itemId, LocalDateTime now);
+
+    //Для каждой вещи не больше двух строк: последняя начавшаяся и ближайшая будущая подтвержденная аренда.
+    //Окно делится по вещи и по тому, началась ли аренда, поэтому история аренд в память не загружается
+    @Query(value = "select b.id, b.start_date, b.end_date, b.item_id, b.booker_id, b.status, b.version from " +
+            "(select bk.*, row_number() over (partition by bk.item_id, bk.start_date < :now " +
+            "order by case when bk.start_date < :now then bk.start_date end desc, bk.start_date) as rn " +
+            "from bookings bk where bk.item_id in (:itemIds) and bk.status = 'APPROVED') b " +
+            "where b.rn = 1", nativeQuery = true)
+    Collection<Booking> getLastAndNextBookingsByItemIds(@Param("itemIds") Collection<Integer> itemIds,
+                                                        @Param("now") LocalDateTime now);
+
+    //Конец самой ранней подтвержденной аренды вещи пользователем: null - пользователь не брал вещь,
+    //иначе по нему видно, закончилась ли хотя бы одна аренда. Значение не зависит от текущего времени,
+    //поэтому кэшируется, а меняется при сохранении аренды (см. save) и смене ее статуса
+    @Cacheable(cacheNames = "commentEligibility")
+    @Query("select min(b.end) from Booking b where b.bookerId = ?1 and b.itemId = ?2 and b.status = 'APPROVED'")
+    LocalDateTime getFirstBookingEnd(Integer bookerId, Integer itemId);
+
+    //Вызывается после смены статуса аренды: updateBookingStatus и approveIfNoOverlap не знают арендатора и вещь
+    @CacheEvict(cacheNames = "commentEligibility")
+    default void evictCommentEligibility(Integer bookerId, Integer itemId) {
+    }
+
+    @Override
+    @CacheEvict(cacheNames = "commentEligibility",
+            key = "new org.springframework.cache.interceptor.SimpleKey(#p0.bookerId, #p0.itemId)")
+    <S extends Booking> S save(S booking);
 }
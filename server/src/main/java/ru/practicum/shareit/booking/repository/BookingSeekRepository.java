@@ -0,0 +1,29 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingState;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface BookingSeekRepository {
+
+    //Pageable.unpaged() - все аренды в состоянии
+    List<Booking> getBookingsForBooker(Integer bookerId, BookingState state, LocalDateTime now, Pageable pageable);
+
+    List<Booking> getBookingsForOwner(Integer ownerId, BookingState state, LocalDateTime now, Pageable pageable);
+
+    Slice<Booking> getBookingsForBookerAfter(Integer bookerId, BookingState state, LocalDateTime now,
+                                             BookingCursor cursor, int size);
+
+    Slice<Booking> getBookingsForOwnerAfter(Integer ownerId, BookingState state, LocalDateTime now,
+                                            BookingCursor cursor, int size);
+
+    Stream<Booking> streamBookingsForBooker(Integer bookerId, BookingState state, LocalDateTime now);
+
+    Stream<Booking> streamBookingsForOwner(Integer ownerId, BookingState state, LocalDateTime now);
+}
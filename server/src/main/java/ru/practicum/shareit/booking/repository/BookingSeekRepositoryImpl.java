@@ -0,0 +1,143 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingState;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.stream.ChunkedReader;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+//Все списки аренд по состоянию строятся здесь одним запросом: состояние задает только условие
+//на диапазон по статусу, началу или концу аренды, время сравнивается с одним значением now из приложения,
+//порядок всегда start desc, id desc. Поэтому у каждого состояния предсказуемый план по индексам из V2 и V8.
+//Постраничный вывод по курсору (keyset): вместо OFFSET страница начинается сразу после последней
+//выданной аренды, а признак следующей страницы определяется по лишней строке, без запроса count(*).
+//Те же условия по состоянию используются для потоковой выдачи всех аренд без пагинации
+public class BookingSeekRepositoryImpl implements BookingSeekRepository {
+    private static final String BOOKER_QUERY = "select b from Booking b where b.bookerId = :userId";
+    private static final String OWNER_QUERY = "select b from Booking b " +
+            "join Item i on b.itemId = i.id where i.ownerId = :userId";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Booking> getBookingsForBooker(Integer bookerId, BookingState state, LocalDateTime now,
+                                              Pageable pageable) {
+        return getBookings(BOOKER_QUERY, bookerId, state, now, pageable);
+    }
+
+    @Override
+    public List<Booking> getBookingsForOwner(Integer ownerId, BookingState state, LocalDateTime now,
+                                             Pageable pageable) {
+        return getBookings(OWNER_QUERY, ownerId, state, now, pageable);
+    }
+
+    @Override
+    public Slice<Booking> getBookingsForBookerAfter(Integer bookerId, BookingState state, LocalDateTime now,
+                                                    BookingCursor cursor, int size) {
+        return getBookingsAfter(BOOKER_QUERY, bookerId, state, now, cursor, size);
+    }
+
+    @Override
+    public Slice<Booking> getBookingsForOwnerAfter(Integer ownerId, BookingState state, LocalDateTime now,
+                                                   BookingCursor cursor, int size) {
+        return getBookingsAfter(OWNER_QUERY, ownerId, state, now, cursor, size);
+    }
+
+    @Override
+    public Stream<Booking> streamBookingsForBooker(Integer bookerId, BookingState state, LocalDateTime now) {
+        return createQuery(BOOKER_QUERY, bookerId, state, now, null)
+                .setHint(QueryHints.HINT_FETCH_SIZE, ChunkedReader.CHUNK_SIZE)
+                .getResultStream();
+    }
+
+    @Override
+    public Stream<Booking> streamBookingsForOwner(Integer ownerId, BookingState state, LocalDateTime now) {
+        return createQuery(OWNER_QUERY, ownerId, state, now, null)
+                .setHint(QueryHints.HINT_FETCH_SIZE, ChunkedReader.CHUNK_SIZE)
+                .getResultStream();
+    }
+
+    private List<Booking> getBookings(String select, Integer userId, BookingState state, LocalDateTime now,
+                                      Pageable pageable) {
+        TypedQuery<Booking> query = createQuery(select, userId, state, now, null);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset())
+                    .setMaxResults(pageable.getPageSize());
+        }
+        return query.getResultList();
+    }
+
+    private Slice<Booking> getBookingsAfter(String select, Integer userId, BookingState state, LocalDateTime now,
+                                            BookingCursor cursor, int size) {
+        TypedQuery<Booking> query = createQuery(select, userId, state, now, cursor)
+                .setMaxResults(size + 1);
+        List<Booking> bookings = new ArrayList<>(query.getResultList());
+        boolean hasNext = bookings.size() > size;
+        if (hasNext) bookings.remove(size);
+        return new SliceImpl<>(bookings, PageRequest.of(0, size), hasNext);
+    }
+
+    private TypedQuery<Booking> createQuery(String select, Integer userId, BookingState state, LocalDateTime now,
+                                            BookingCursor cursor) {
+        StringBuilder jpql = new StringBuilder(select).append(getStatePredicate(state));
+        if (cursor != null) {
+            jpql.append(" and (b.start < :cursorStart or (b.start = :cursorStart and b.id < :cursorId))");
+        }
+        jpql.append(" order by b.start desc, b.id desc");
+
+        TypedQuery<Booking> query = entityManager.createQuery(jpql.toString(), Booking.class)
+                .setParameter("userId", userId);
+        switch (state) {
+            case CURRENT:
+            case FUTURE:
+            case PAST:
+                query.setParameter("now", now);
+                break;
+            case WAITING:
+                query.setParameter("status", Status.WAITING);
+                break;
+            case REJECTED:
+                query.setParameter("status", Status.REJECTED);
+                break;
+            default:
+                break;
+        }
+        if (cursor != null) {
+            query.setParameter("cursorStart", cursor.getStart())
+                    .setParameter("cursorId", cursor.getId());
+        }
+        return query;
+    }
+
+    //PAST, CURRENT и FUTURE делят аренды по одному моменту now без пересечений:
+    //закончилась до now, идет в now (границы включительно), начнется после now
+    private String getStatePredicate(BookingState state) {
+        switch (state) {
+            case CURRENT:
+                return " and b.start <= :now and b.end >= :now";
+            case FUTURE:
+                return " and b.start > :now";
+            case PAST:
+                return " and b.end < :now";
+            case WAITING:
+            case REJECTED:
+                return " and b.status = :status";
+            default:
+                return "";
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package ru.practicum.shareit.booking.service;
 
+import org.springframework.data.domain.Slice;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingState;
+import ru.practicum.shareit.stream.ChunkedResult;
 
 import java.util.Collection;
 
@@ -15,14 +18,26 @@ public interface BookingService {
 
     BookingDto getBookingByIdForOwnerOrBooker(Integer bookingId, Integer userId);
 
+    String getBookingEtag(Integer bookingId, Integer userId);
+
+    SseEmitter subscribeToBookingEvents(Integer userId, Integer bookingId);
+
     Collection<BookingDto> getAllBookingsForUser(BookingState state, Integer userId);
 
+    ChunkedResult<BookingDto> streamAllBookingsForUser(BookingState state, Integer userId);
+
     Collection<BookingDto> getAllBookingsForUserWithPagination(BookingState state,
                                                                Integer userId, Integer from, Integer size);
 
     Collection<BookingDto> getAllBookingForOwner(BookingState state, Integer ownerId);
 
+    ChunkedResult<BookingDto> streamAllBookingForOwner(BookingState state, Integer ownerId);
+
     Collection<BookingDto> getAllBookingForOwnerWithPagination(BookingState state,
                                                                Integer userId, Integer from, Integer size);
 
+    Slice<BookingDto> getBookingsForUserByCursor(BookingState state, Integer userId, String cursor, Integer size);
+
+    Slice<BookingDto> getBookingsForOwnerByCursor(BookingState state, Integer ownerId, String cursor, Integer size);
+
 }
@@ -2,331 +2,327 @@ package ru.practicum.shareit.booking.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.booking.admission.BookingAdmission;
+import ru.practicum.shareit.booking.availability.ItemAvailabilityIndex;
+import ru.practicum.shareit.booking.dto.BookingCursor;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.event.BookingEventHub;
+import ru.practicum.shareit.booking.event.BookingStatusEvent;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingDetails;
 import ru.practicum.shareit.booking.model.BookingState;
+import ru.practicum.shareit.booking.model.BookingVersion;
+import ru.practicum.shareit.booking.model.ItemForBooking;
 import ru.practicum.shareit.booking.model.Status;
 import ru.practicum.shareit.booking.repository.BookingRepository;
 import ru.practicum.shareit.exception.RequestError;
-import ru.practicum.shareit.item.dto.ItemDto;
-import ru.practicum.shareit.item.mapper.ItemMapper;
-import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.ItemIndex;
+import ru.practicum.shareit.stream.ChunkedReader;
+import ru.practicum.shareit.stream.ChunkedResult;
 import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
 import ru.practicum.shareit.user.service.UserService;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
 public class BookingServiceImpl implements BookingService {
     private final BookingRepository bookingRepository;
-    private final ItemService itemService;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
     private final UserService userService;
+    private final List<ItemIndex> itemIndexes;
+    private final ChunkedReader chunkedReader;
+    private final BookingEventHub bookingEventHub;
+    private final BookingAdmission bookingAdmission;
+    private final ItemAvailabilityIndex itemAvailabilityIndex;
 
-    //Получаю пользователя и вещь при помощи вспомогательных сервисов.
-    //Если пользователь или вещь в методе get будет не найдены, то ошибка обработается внутри
-    //этих сервисов. Т.о. мне не нужно в BookingService делать проверки на сущ-е юзеров и вещей
+    //Пользователя получаю через UserService, если он не найден, ошибка обработается внутри сервиса.
+    //Вещь загружаю один раз вместе с числом пересекающихся подтвержденных аренд
+    //и по ней же собираю ответ, без повторного чтения бронирования
     @Override
     public BookingDto createBooking(Booking booking) {
-        User owner = userService.getUserById(booking.getBookerId());
+        User booker = userService.getUserById(booking.getBookerId());
         if (booking.getStart().isAfter(booking.getEnd()) || booking.getStart().isBefore(LocalDateTime.now())) {
             log.warn("Ошибка при аренде вещи {}, неверно указано время аренды", booking);
             throw new RequestError(HttpStatus.BAD_REQUEST, "Некорректно указано время аренды");
         }
-        ItemDto item = itemService.getItemById(booking.getItemId(), owner.getId());
-        if (!item.getAvailable()) {
+        ItemForBooking itemForBooking = bookingRepository.findItemForBooking(booking.getItemId(),
+                booking.getStart(), booking.getEnd()).orElse(null);
+        if (itemForBooking == null) {
+            log.warn("Ошибка при аренде вещи. Вещь с id {} не найдена", booking.getItemId());
+            throw new RequestError(HttpStatus.NOT_FOUND, "Предмет не найден");
+        }
+        Item item = itemForBooking.getItem();
+        if (!item.isAvailable()) {
             log.warn("Ошибка при аренде вещи {}, вещь не доступна для аренды", item);
             throw new RequestError(HttpStatus.BAD_REQUEST, "Вещь с ID =" + booking.getItemId() + " не доступна для аренды");
         }
-        if (Objects.equals(item.getOwner().getId(), owner.getId())) {
+        if (Objects.equals(item.getOwnerId(), booker.getId())) {
             log.warn("Ошибка при аренде вещи {}, пользователь не может арендовать собственную вещь", item);
             throw new RequestError(HttpStatus.NOT_FOUND,
                     "Пользователь не может арендовать собственную вещь");
         }
-        log.info("Создан запрос от пользователя {} на аренду вещи {}", owner, item);
+        if (itemForBooking.getApprovedOverlaps() > 0) {
+            log.warn("Ошибка при аренде вещи {}, вещь уже арендована на это время", item);
+            throw new RequestError(HttpStatus.CONFLICT, "Вещь с ID = " + item.getId() +
+                    " уже арендована на указанное время");
+        }
+        log.info("Создан запрос от пользователя {} на аренду вещи {}", booker, item);
+        //Ответ собирается без повторного чтения, поэтому время приводится к точности столбца TIMESTAMP
+        booking.setStart(booking.getStart().truncatedTo(ChronoUnit.MICROS));
+        booking.setEnd(booking.getEnd().truncatedTo(ChronoUnit.MICROS));
         booking.setStatus(Status.WAITING);
         bookingRepository.save(booking);
-        return getBookingById(booking.getId());
+        itemAvailabilityIndex.update(booking);
+        bookingEventHub.publish(new BookingStatusEvent(booking.getId(), item.getId(), booker.getId(),
+                item.getOwnerId(), Status.WAITING));
+        return BookingMapper.toBookingDto(booking, item, booker);
     }
 
-    //Через getBookingById проверяю, что бронирование с нужным id существует
+    //Бронирование читается один раз вместе с вещью и арендатором, статус меняется условным update,
+    //поэтому повторный ответ на уже закрытое бронирование не перезапишет статус.
+    //Подтверждение проходит через BookingAdmission, пересечение с подтвержденной арендой - 409
     @Override
     public BookingDto replyToBooking(Integer ownerId, Integer bookingId, boolean approved) {
-        BookingDto bookingDto = getBookingById(bookingId);
-        if (!Objects.equals(bookingDto.getItem().getOwnerId(), ownerId)) {
+        BookingDetails details = getBookingDetails(bookingId);
+        Booking booking = details.getBooking();
+        Item item = details.getItem();
+        if (!Objects.equals(item.getOwnerId(), ownerId)) {
             log.warn("Невозможно принять/отменить аренду. Пользователь не является владельцем вещи");
             throw new RequestError(HttpStatus.NOT_FOUND, "Пользователь с ID = " + ownerId +
-                    " не является владельцем вещи с ID = " + bookingDto.getItem().getId());
+                    " не является владельцем вещи с ID = " + item.getId());
         }
-        if (!Objects.equals(bookingDto.getStatus(), Status.WAITING)) {
-            log.warn("Невозможно изменить статус аренды. Статус аренды {}", bookingDto.getStatus());
-            throw new RequestError(HttpStatus.BAD_REQUEST,
-                    "Невозможно изменить статус аренды. Аренда уже закрыта/отклонена/принята");
+        Status status = approved ? Status.APPROVED : Status.REJECTED;
+        if (!Objects.equals(booking.getStatus(), Status.WAITING) || !changeStatus(booking, status)) {
+            throwStatusNotChanged(bookingId, booking.getStatus());
         }
-        Booking booking = BookingMapper.toBooking(bookingDto);
-        if (approved) {
-            booking.setStatus(Status.APPROVED);
-        } else {
-            booking.setStatus(Status.REJECTED);
+        log.info("Статус запроса {} изменен на {}", booking, status);
+        booking.setStatus(status);
+        itemAvailabilityIndex.update(booking);
+        bookingEventHub.publish(new BookingStatusEvent(bookingId, item.getId(), booking.getBookerId(),
+                item.getOwnerId(), status));
+        if (!item.isAvailable()) {
+            itemRepository.updateItemAvailable(item.getId(), true);
+            item.setAvailable(true);
+            itemIndexes.forEach(index -> index.index(item));
         }
-        log.info("Статус запроса {} изменен на {}", bookingDto, booking.getStatus());
-        itemService.changeItemStatus(bookingDto.getItem().getId(), ownerId, true);
-        bookingRepository.save(booking);
-        return getBookingById(bookingId);
+        return BookingMapper.toBookingDto(booking, item, details.getBooker());
     }
 
     @Override
     public BookingDto getBookingById(Integer bookingId) {
-        Booking booking = bookingRepository.findById(bookingId).orElse(null);
-        if (booking == null) {
+        BookingDetails details = getBookingDetails(bookingId);
+        log.info("Просмотрен запрос аренды с id = {}", bookingId);
+        return BookingMapper.toBookingDto(details.getBooking(), details.getItem(), details.getBooker());
+    }
+
+    //Пользователь проверяется до открытия подписки: после начала потока событий статус ответа уже не изменить
+    @Override
+    public SseEmitter subscribeToBookingEvents(Integer userId, Integer bookingId) {
+        userService.getUserById(userId);
+        return bookingEventHub.subscribe(userId, bookingId);
+    }
+
+    //В ответ входят аренда, вещь и арендатор: ETag собирается из версий аренды и вещи,
+    //а переименование арендатора увеличивает версию его аренд (см. UserServiceImpl)
+    @Override
+    public String getBookingEtag(Integer bookingId, Integer userId) {
+        BookingVersion version = bookingRepository.findVersionById(bookingId).orElse(null);
+        if (version == null || !Objects.equals(version.getOwnerId(), userId)
+                && !Objects.equals(version.getBookerId(), userId)) {
             log.warn("Ошибка. Запрос аренды под id {} не найден", bookingId);
             throw new RequestError(HttpStatus.NOT_FOUND, "Запрос на аренду с ID" + bookingId + " не найден");
         }
-        User booker = userService.getUserById(booking.getBookerId());
-        ItemDto item = itemService.getItemById(booking.getItemId(), booker.getId());
-        log.info("Просмотрен запрос аренды с id = {}", bookingId);
-        return BookingMapper.toBookingDto(booking, ItemMapper.toItem(item), booker);
+        return "\"booking-" + bookingId + "-" + version.getBookingVersion() + "-" + version.getItemVersion() + "\"";
     }
 
     @Override
     public BookingDto getBookingByIdForOwnerOrBooker(Integer bookingId, Integer userId) {
-        BookingDto bookingDto = getBookingById(bookingId);
-        if (!Objects.equals(bookingDto.getItem().getOwnerId(), userId)
-                && !Objects.equals(bookingDto.getBooker().getId(), userId)) {
+        BookingDetails details = getBookingDetails(bookingId);
+        if (!Objects.equals(details.getItem().getOwnerId(), userId)
+                && !Objects.equals(details.getBooker().getId(), userId)) {
             log.warn("Ошибка. Запрос аренды под id {} не найден", bookingId);
             throw new RequestError(HttpStatus.NOT_FOUND, "Запрос на аренду с ID" + bookingId + " не найден");
         }
         log.info("Пользователь с id {} запросил информацию о запросе аренды с id {}",
                 userId, bookingId);
-        return getBookingById(bookingId);
+        return BookingMapper.toBookingDto(details.getBooking(), details.getItem(), details.getBooker());
     }
 
+    //Все состояния читаются одним запросом BookingSeekRepository, время - одно значение now на запрос
     @Override
     public Collection<BookingDto> getAllBookingsForUser(BookingState state, Integer userId) {
-        Collection<BookingDto> userBooking = new ArrayList<>();
         //Проверка, что юзер существует
         User userSender = userService.getUserById(userId);
-        switch (state) {
-            case ALL:
-                log.info("Пользователь {} запросил список всех арендованных предметов",
-                        userSender);
-                Collection<Booking> bookings = bookingRepository
-                        .getBookingsByBookerIdOrderByStartDesc(userSender.getId());
-                userBooking = setBookingsDtoForUser(bookings);
-                break;
-            case FUTURE:
-                log.info("Пользователь {} запросил список всех арендованных предметов со статусом {}",
-                        userSender, BookingState.FUTURE);
-                Collection<Booking> futureBookings = bookingRepository
-                        .getFutureBookingsForUser(userSender.getId(), LocalDateTime.now());
-                userBooking = setBookingsDtoForUser(futureBookings);
-                break;
-            case CURRENT:
-                log.info("Пользователь {} запросил список всех арендованных предметов со статусом {}",
-                        userSender, BookingState.CURRENT);
-                Collection<Booking> currentBookings = bookingRepository.getCurrentBookingForUser(userSender.getId());
-                userBooking = setBookingsDtoForUser(currentBookings);
-                break;
-            case WAITING:
-                log.info("Пользователь {} запросил список всех арендованных предметов со статусом {}",
-                        userSender, BookingState.WAITING);
-                Collection<Booking> waitingBookings = bookingRepository
-                        .getBookingsByBookerIdAndStatus(userSender.getId(), Status.WAITING);
-                userBooking = setBookingsDtoForUser(waitingBookings);
-                break;
-            case REJECTED:
-                log.info("Пользователь {} запросил список всех арендованных предметов со статусом {}",
-                        userSender, BookingState.REJECTED);
-                Collection<Booking> rejectedBookings = bookingRepository
-                        .getBookingsByBookerIdAndStatus(userSender.getId(), Status.REJECTED);
-                userBooking = setBookingsDtoForUser(rejectedBookings);
-                break;
-            case PAST:
-                log.info("Пользователь {} запросил список всех арендованных предметов со статусом {}",
-                        userSender, BookingState.PAST);
-                Collection<Booking> pastBookings = bookingRepository
-                        .getBookingsByBookerIdAndEndBefore(userSender.getId(), LocalDateTime.now());
-                userBooking = setBookingsDtoForUser(pastBookings);
-                break;
-        }
-        return userBooking;
+        log.info("Пользователь {} запросил список арендованных предметов со статусом {}", userSender, state);
+        return setBookingsDtoForUser(bookingRepository
+                .getBookingsForBooker(userId, state, LocalDateTime.now(), Pageable.unpaged()));
+    }
+
+    //Потоковый вывод: аренды читаются курсором порциями, арендаторы и вещи догружаются на каждую порцию
+    @Override
+    public ChunkedResult<BookingDto> streamAllBookingsForUser(BookingState state, Integer userId) {
+        User userSender = userService.getUserById(userId);
+        log.info("Пользователь {} запросил потоковый вывод арендованных предметов со статусом {}",
+                userSender, state);
+        LocalDateTime now = LocalDateTime.now();
+        return chunkedReader.read(() -> bookingRepository.streamBookingsForBooker(userId, state, now),
+                this::setBookingsDtoForUser);
     }
 
     @Override
     public Collection<BookingDto> getAllBookingsForUserWithPagination(BookingState state, Integer userId, Integer from,
                                                                       Integer size) {
-        Collection<BookingDto> userBooking = new ArrayList<>();
+        checkPage(from, size);
         //Проверка, что юзер существует
         User userSender = userService.getUserById(userId);
-        from = from / size;
-        switch (state) {
-            case ALL:
-                log.info("Пользователь {} запросил список всех арендованных предметов",
-                        userSender);
-                Page<Booking> bookings = bookingRepository
-                        .getBookingsByBookerIdOrderByStartDesc(userId, PageRequest.of(from, size));
-                userBooking = setBookingsDtoForUser(bookings.toList());
-                break;
-            case FUTURE:
-                log.info("Пользователь {} запросил список всех арендованных предметов со статусом {}",
-                        userSender, BookingState.FUTURE);
-                Page<Booking> futureBookings = bookingRepository
-                        .getFutureBookingsForUser(userSender.getId(), LocalDateTime.now(), PageRequest.of(from, size));
-                userBooking = setBookingsDtoForUser(futureBookings.toList());
-                break;
-            case CURRENT:
-                log.info("Пользователь {} запросил список всех арендованных предметов со статусом {}",
-                        userSender, BookingState.CURRENT);
-                Page<Booking> currentBookings = bookingRepository
-                        .getCurrentBookingForUser(userSender.getId(), PageRequest.of(from, size));
-                userBooking = setBookingsDtoForUser(currentBookings.toList());
-                break;
-            case WAITING:
-                log.info("Пользователь {} запросил список всех арендованных предметов со статусом {}",
-                        userSender, BookingState.WAITING);
-                Page<Booking> waitingBookings = bookingRepository
-                        .getBookingsByBookerIdAndStatus(userSender.getId(), Status.WAITING,
-                                PageRequest.of(from, size));
-                userBooking = setBookingsDtoForUser(waitingBookings.toList());
-                break;
-            case REJECTED:
-                log.info("Пользователь {} запросил список всех арендованных предметов со статусом {}",
-                        userSender, BookingState.REJECTED);
-                Page<Booking> rejectedBookings = bookingRepository
-                        .getBookingsByBookerIdAndStatus(userSender.getId(), Status.REJECTED,
-                                PageRequest.of(from, size));
-                userBooking = setBookingsDtoForUser(rejectedBookings.toList());
-                break;
-            case PAST:
-                log.info("Пользователь {} запросил список всех арендованных предметов со статусом {}",
-                        userSender, BookingState.PAST);
-                Page<Booking> pastBookings = bookingRepository
-                        .getBookingsByBookerIdAndEndBefore(userSender.getId(), LocalDateTime.now(),
-                                PageRequest.of(from, size));
-                userBooking = setBookingsDtoForUser(pastBookings.toList());
-                break;
-        }
-        return userBooking;
+        log.info("Пользователь {} запросил список арендованных предметов со статусом {}", userSender, state);
+        return setBookingsDtoForUser(bookingRepository
+                .getBookingsForBooker(userId, state, LocalDateTime.now(), PageRequest.of(from / size, size)));
     }
 
     @Override
     public Collection<BookingDto> getAllBookingForOwner(BookingState state, Integer ownerId) {
-        Collection<BookingDto> ownerBooking = new ArrayList<>();
         User owner = userService.getUserById(ownerId);
-        switch (state) {
-            case ALL:
-                log.info("Владелец {} запросил список всех своих предметов", owner);
-                Collection<Booking> bookings = bookingRepository
-                        .getBookingsByOwnerId(ownerId);
-                ownerBooking = setBookingsDtoForUser(bookings);
-                break;
-            case FUTURE:
-                log.info("Владелец {} запросил список всех своих предметов со статусом {}",
-                        owner, BookingState.FUTURE);
-                Collection<Booking> futureBookings = bookingRepository
-                        .getFutureBookingForOwner(owner.getId());
-                ownerBooking = setBookingsDtoForUser(futureBookings);
-                break;
-            case CURRENT:
-                log.info("Владелец {} запросил список всех своих предметов со статусом {}",
-                        owner, BookingState.FUTURE);
-                Collection<Booking> currentBookings = bookingRepository
-                        .getCurrentBookingForOwner(owner.getId());
-                ownerBooking = setBookingsDtoForUser(currentBookings);
-                break;
-            case WAITING:
-                log.info("Владелец {} запросил список всех своих предметов со статусом {}",
-                        owner, BookingState.WAITING);
-                Collection<Booking> waitingBooking = bookingRepository
-                        .getBookingForOwnerByStatus(owner.getId(), Status.WAITING);
-                ownerBooking = setBookingsDtoForUser(waitingBooking);
-                break;
-            case REJECTED:
-                log.info("Владелец {} запросил список всех своих предметов со статусом {}",
-                        owner, BookingState.REJECTED);
-                Collection<Booking> rejectedBooking = bookingRepository
-                        .getBookingForOwnerByStatus(owner.getId(), Status.REJECTED);
-                ownerBooking = setBookingsDtoForUser(rejectedBooking);
-                break;
-            case PAST:
-                log.info("Владелец {} запросил список всех своих предметов со статусом {}",
-                        owner, BookingState.PAST);
-                Collection<Booking> pastBooking = bookingRepository
-                        .getPastBookingForByOwnerId(owner.getId(), LocalDateTime.now());
-                ownerBooking = setBookingsDtoForUser(pastBooking);
-                break;
-        }
-        return ownerBooking;
+        log.info("Владелец {} запросил список своих предметов со статусом {}", owner, state);
+        return setBookingsDtoForUser(bookingRepository
+                .getBookingsForOwner(ownerId, state, LocalDateTime.now(), Pageable.unpaged()));
+    }
+
+    @Override
+    public ChunkedResult<BookingDto> streamAllBookingForOwner(BookingState state, Integer ownerId) {
+        User owner = userService.getUserById(ownerId);
+        log.info("Владелец {} запросил потоковый вывод своих предметов со статусом {}", owner, state);
+        LocalDateTime now = LocalDateTime.now();
+        return chunkedReader.read(() -> bookingRepository.streamBookingsForOwner(ownerId, state, now),
+                this::setBookingsDtoForUser);
     }
 
     @Override
     public Collection<BookingDto> getAllBookingForOwnerWithPagination(BookingState state, Integer ownerId, Integer from, Integer size) {
-        from = from / size;
-        Collection<BookingDto> ownerBooking = new ArrayList<>();
+        checkPage(from, size);
         User owner = userService.getUserById(ownerId);
-        switch (state) {
-            case ALL:
-                log.info("Владелец {} запросил список всех своих предметов", owner);
-                Page<Booking> bookings = bookingRepository
-                        .getBookingsByOwnerId(ownerId, PageRequest.of(from, size));
-                ownerBooking = setBookingsDtoForUser(bookings.toList());
-                break;
-            case FUTURE:
-                log.info("Владелец {} запросил список всех своих предметов со статусом {}",
-                        owner, BookingState.FUTURE);
-                Page<Booking> futureBookings = bookingRepository
-                        .getFutureBookingForOwner(owner.getId(), PageRequest.of(from, size));
-                ownerBooking = setBookingsDtoForUser(futureBookings.toList());
-                break;
-            case CURRENT:
-                log.info("Владелец {} запросил список всех своих предметов со статусом {}",
-                        owner, BookingState.FUTURE);
-                Page<Booking> currentBookings = bookingRepository
-                        .getCurrentBookingForOwner(owner.getId(), PageRequest.of(from, size));
-                ownerBooking = setBookingsDtoForUser(currentBookings.toList());
-                break;
-            case WAITING:
-                log.info("Владелец {} запросил список всех своих предметов со статусом {}",
-                        owner, BookingState.WAITING);
-                Page<Booking> waitingBooking = bookingRepository
-                        .getBookingForOwnerByStatus(owner.getId(), Status.WAITING, PageRequest.of(from, size));
-                ownerBooking = setBookingsDtoForUser(waitingBooking.toList());
-                break;
-            case REJECTED:
-                log.info("Владелец {} запросил список всех своих предметов со статусом {}",
-                        owner, BookingState.REJECTED);
-                Page<Booking> rejectedBooking = bookingRepository
-                        .getBookingForOwnerByStatus(owner.getId(), Status.REJECTED, PageRequest.of(from, size));
-                ownerBooking = setBookingsDtoForUser(rejectedBooking.toList());
-                break;
-            case PAST:
-                log.info("Владелец {} запросил список всех своих предметов со статусом {}",
-                        owner, BookingState.PAST);
-                Page<Booking> pastBooking = bookingRepository
-                        .getPastBookingForByOwnerId(owner.getId(), LocalDateTime.now(), PageRequest.of(from, size));
-                ownerBooking = setBookingsDtoForUser(pastBooking.toList());
-                break;
-        }
-        return ownerBooking;
+        log.info("Владелец {} запросил список своих предметов со статусом {}", owner, state);
+        return setBookingsDtoForUser(bookingRepository
+                .getBookingsForOwner(ownerId, state, LocalDateTime.now(), PageRequest.of(from / size, size)));
     }
 
-    //Получаю из booking DTO, т.к. из репозитория возвращается только booking
+    @Override
+    public Slice<BookingDto> getBookingsForUserByCursor(BookingState state, Integer userId, String cursor,
+                                                        Integer size) {
+        checkPageSize(size);
+        User userSender = userService.getUserById(userId);
+        BookingCursor bookingCursor = BookingCursor.decode(cursor);
+        log.info("Пользователь {} запросил список арендованных предметов со статусом {} после {}",
+                userSender, state, bookingCursor);
+        Slice<Booking> bookings = bookingRepository
+                .getBookingsForBookerAfter(userId, state, LocalDateTime.now(), bookingCursor, size);
+        return new SliceImpl<>(new ArrayList<>(setBookingsDtoForUser(bookings.getContent())),
+                bookings.getPageable(), bookings.hasNext());
+    }
+
+    @Override
+    public Slice<BookingDto> getBookingsForOwnerByCursor(BookingState state, Integer ownerId, String cursor,
+                                                         Integer size) {
+        checkPageSize(size);
+        User owner = userService.getUserById(ownerId);
+        BookingCursor bookingCursor = BookingCursor.decode(cursor);
+        log.info("Владелец {} запросил список своих предметов со статусом {} после {}",
+                owner, state, bookingCursor);
+        Slice<Booking> bookings = bookingRepository
+                .getBookingsForOwnerAfter(ownerId, state, LocalDateTime.now(), bookingCursor, size);
+        return new SliceImpl<>(new ArrayList<>(setBookingsDtoForUser(bookings.getContent())),
+                bookings.getPageable(), bookings.hasNext());
+    }
+
+    //Получаю из booking DTO, т.к. из репозитория возвращается только booking.
+    //Арендаторы и вещи всей страницы загружаются двумя IN-запросами, а не по запросу на каждую аренду,
+    //поэтому число обращений к бд не зависит от размера списка
     private Collection<BookingDto> setBookingsDtoForUser(Collection<Booking> bookings) {
-        Collection<BookingDto> ownerBooking = new ArrayList<>();
-        bookings.forEach(booking -> {
-            User user = userService.getUserById(booking.getBookerId());
-            ItemDto item = itemService.getItemById(booking.getItemId(), user.getId());
-            ownerBooking.add(BookingMapper.toBookingDto(booking, ItemMapper.toItem(item), user));
-        });
+        Collection<BookingDto> ownerBooking = new ArrayList<>(bookings.size());
+        if (bookings.isEmpty()) return ownerBooking;
+        Set<Integer> bookerIds = bookings.stream().map(Booking::getBookerId).collect(Collectors.toSet());
+        Set<Integer> itemIds = bookings.stream().map(Booking::getItemId).collect(Collectors.toSet());
+        Map<Integer, User> bookers = userRepository.findByUserIds(bookerIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<Integer, Item> items = itemRepository.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        bookings.forEach(booking -> ownerBooking.add(BookingMapper.toBookingDto(booking,
+                items.get(booking.getItemId()), bookers.get(booking.getBookerId()))));
         return ownerBooking;
     }
+
+    //Параметры страницы проверяются и на сервере: без проверки PageRequest.of и деление from / size
+    //отвечают на запрос в обход gateway ошибкой 500
+    private static void checkPage(Integer from, Integer size) {
+        if (from == null || size == null) {
+            throw new RequestError(HttpStatus.BAD_REQUEST, "Параметры from и size указываются вместе");
+        }
+        if (from < 0) {
+            throw new RequestError(HttpStatus.BAD_REQUEST, "Параметр from не может быть отрицательным");
+        }
+        checkPageSize(size);
+    }
+
+    private static void checkPageSize(Integer size) {
+        if (size == null || size <= 0) {
+            throw new RequestError(HttpStatus.BAD_REQUEST, "Параметр size должен быть положительным");
+        }
+    }
+
+    private boolean changeStatus(Booking booking, Status status) {
+        boolean changed = status == Status.APPROVED
+                ? bookingAdmission.approve(booking.getId(), booking.getItemId())
+                : bookingRepository.updateBookingStatus(booking.getId(), Status.WAITING, status) != 0;
+        if (changed) {
+            bookingRepository.evictCommentEligibility(booking.getBookerId(), booking.getItemId());
+        }
+        return changed;
+    }
+
+    //Аренда, которая все еще ждет ответа, не подтверждена из-за пересечения с подтвержденной арендой
+    private void throwStatusNotChanged(Integer bookingId, Status readStatus) {
+        Status current = Objects.equals(readStatus, Status.WAITING)
+                ? bookingRepository.findById(bookingId).map(Booking::getStatus).orElse(null)
+                : readStatus;
+        if (Objects.equals(current, Status.WAITING)) {
+            log.warn("Невозможно подтвердить аренду {}, вещь уже арендована на это время", bookingId);
+            throw new RequestError(HttpStatus.CONFLICT,
+                    "Невозможно подтвердить аренду. Вещь уже арендована на это время");
+        }
+        log.warn("Невозможно изменить статус аренды. Статус аренды {}", current);
+        throw new RequestError(HttpStatus.BAD_REQUEST,
+                "Невозможно изменить статус аренды. Аренда уже закрыта/отклонена/принята");
+    }
+
+    private BookingDetails getBookingDetails(Integer bookingId) {
+        BookingDetails details = bookingRepository.findDetailsById(bookingId).orElse(null);
+        if (details == null) {
+            log.warn("Ошибка. Запрос аренды под id {} не найден", bookingId);
+            throw new RequestError(HttpStatus.NOT_FOUND, "Запрос на аренду с ID" + bookingId + " не найден");
+        }
+        return details;
+    }
 }
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.cache;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+//Сброс и запись кэша внутри транзакции откладываются до ее фиксации. Иначе между сбросом и фиксацией
+//параллельный запрос успевает прочитать из бд старую строку и вернуть ее в кэш.
+//Вне транзакции кэш меняется сразу, как и раньше
+@Configuration
+public class TransactionAwareCacheConfig {
+
+    @Bean
+    public static BeanPostProcessor transactionAwareCacheManagerPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof CacheManager && !(bean instanceof TransactionAwareCacheManagerProxy)) {
+                    return new TransactionAwareCacheManagerProxy((CacheManager) bean);
+                }
+                return bean;
+            }
+        };
+    }
+}
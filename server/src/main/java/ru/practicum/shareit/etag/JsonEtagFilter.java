@@ -0,0 +1,23 @@
+package ru.practicum.shareit.etag;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import ru.practicum.shareit.stream.NdjsonStreamer;
+
+import javax.servlet.http.HttpServletRequest;
+
+//ETag для ответов на GET: gateway хранит ответы у себя и перепроверяет их запросом с If-None-Match,
+//на совпадающий ETag сервер отвечает 304 без тела.
+//Потоковые ответы (application/x-ndjson) не фильтруются: ради ETag их пришлось бы буферизовать целиком
+@Component
+public class JsonEtagFilter extends ShallowEtagHeaderFilter {
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!HttpMethod.GET.matches(request.getMethod())) return true;
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && accept.contains(NdjsonStreamer.APPLICATION_NDJSON_VALUE);
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum.shareit.execution;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//Режим shareit.execution.mode=virtual: каждый запрос обрабатывается в своем виртуальном потоке (Java 21+).
+//Ожидание JDBC не держит поток ОС, поэтому всплеск запросов не требует роста пула потоков Tomcat.
+//Проект собирается под Java 11, поэтому виртуальные потоки создаются через reflection
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "shareit.execution.mode", havingValue = "virtual")
+public class VirtualThreadExecutionConfig {
+    private static final String PARALLELISM_PROPERTY = "jdk.virtualThreadScheduler.parallelism";
+
+    //Пул соединений - единственное, что теперь ограничивает число запросов, одновременно работающих с БД;
+    //остальные ждут соединения, не занимая потоков ОС
+    @Bean
+    public static BeanPostProcessor virtualThreadDataSourcePostProcessor(Environment environment) {
+        int poolSize = dbPoolSize(environment);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource) {
+                    ((HikariDataSource) bean).setMaximumPoolSize(poolSize);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadRequestExecutor(Environment environment) {
+        guardAgainstPinning(dbPoolSize(environment));
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            log.info("Запросы обрабатываются в виртуальных потоках, носителей {}",
+                    System.getProperty(PARALLELISM_PROPERTY));
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("shareit.execution.mode=virtual требует Java 21+, текущая версия "
+                    + Runtime.version(), e);
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer(
+            ExecutorService virtualThreadRequestExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadRequestExecutor);
+    }
+
+    //Драйвер PostgreSQL выполняет сетевой ввод-вывод внутри synchronized, и на это время виртуальный поток
+    //закрепляется (pinning) за потоком-носителем. Одновременно так могут быть заняты носители по числу
+    //соединений в пуле, поэтому носителей должно быть больше, иначе остальные запросы встанут.
+    //Закрепления видны с -Djdk.tracePinnedThreads=short
+    private static void guardAgainstPinning(int poolSize) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        String configured = System.getProperty(PARALLELISM_PROPERTY);
+        if (configured == null) {
+            //Планировщик читает свойство при создании первого виртуального потока, то есть после этой точки
+            System.setProperty(PARALLELISM_PROPERTY, String.valueOf(poolSize + processors));
+        } else if (Integer.parseInt(configured) <= poolSize) {
+            log.warn("Носителей виртуальных потоков {} не больше пула соединений {}: при закреплении в JDBC "
+                    + "запросы, не обращающиеся к БД, будут ждать", configured, poolSize);
+        }
+    }
+
+    private static int dbPoolSize(Environment environment) {
+        return environment.getProperty("shareit.execution.virtual.db-pool-size", Integer.class, 40);
+    }
+}
@@ -1,20 +1,32 @@
 package ru.practicum.shareit.item;
 
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.CommentResponseDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.stream.NdjsonStreamer;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 
+import static org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME;
+
 @RestController
 @AllArgsConstructor
 @RequestMapping("/items")
 public class ItemController {
+    private static final int MAX_SUGGESTIONS = 50;
     private final ItemService itemService;
+    private final NdjsonStreamer ndjsonStreamer;
 
     @PostMapping
     public Item createItem(@RequestHeader("X-Sharer-User-Id") Integer userId,
@@ -36,10 +48,15 @@ public class ItemController {
         return itemService.updateItem(itemId, userId, itemDto);
     }
 
+    //ETag проверяется до сборки ItemDto: на совпавший If-None-Match сразу уходит 304
+    //без запросов аренд и комментариев
     @GetMapping("/{itemId}")
-    public ItemDto getItemById(@RequestHeader("X-Sharer-User-Id") Integer userId,
-                               @PathVariable Integer itemId) {
-        return itemService.getItemById(itemId, userId);
+    public ResponseEntity<ItemDto> getItemById(@RequestHeader("X-Sharer-User-Id") Integer userId,
+                                               @PathVariable Integer itemId,
+                                               WebRequest request) {
+        String etag = itemService.getItemEtag(itemId, userId);
+        if (request.checkNotModified(etag)) return null;
+        return ResponseEntity.ok().eTag(etag).body(itemService.getItemById(itemId, userId));
     }
 
     @GetMapping
@@ -50,12 +67,40 @@ public class ItemController {
         return itemService.getAllItemsWithPagination(userId, from, size);
     }
 
+    @GetMapping(produces = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllItemsOwner(
+            @RequestHeader("X-Sharer-User-Id") Integer userId) {
+        return ndjsonStreamer.stream(itemService.streamAllItemsOwner(userId));
+    }
+
+    @GetMapping("/{itemId}/availability")
+    public ItemAvailabilityDto getItemAvailability(@RequestHeader("X-Sharer-User-Id") Integer userId,
+                                                   @PathVariable Integer itemId,
+                                                   @RequestParam @DateTimeFormat(iso = DATE_TIME) LocalDateTime start,
+                                                   @RequestParam @DateTimeFormat(iso = DATE_TIME) LocalDateTime end) {
+        return itemService.getItemAvailability(itemId, userId, start, end);
+    }
+
+    //С параметрами start и end в ответ попадают только вещи, свободные на весь период
     @GetMapping("/search")
     public Collection<Item> searchItemByText(@RequestParam(value = "from", required = false) Integer from,
                                              @RequestParam(value = "size", required = false) Integer size,
                                              @RequestHeader("X-Sharer-User-Id") Integer userId,
-                                             @RequestParam String text) {
+                                             @RequestParam String text,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME)
+                                             LocalDateTime start,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DATE_TIME)
+                                             LocalDateTime end) {
+        if (start != null || end != null) {
+            return itemService.searchAvailableItems(userId, text, start, end, from, size);
+        }
         if (from == null) return itemService.searchItemByText(userId, text);
         return itemService.searchItemByTextWithPagination(userId, from, size, text);
     }
+
+    @GetMapping("/suggest")
+    public Collection<ItemSuggestionDto> suggestItemNames(@RequestParam String prefix,
+                                                          @RequestParam(defaultValue = "10") Integer limit) {
+        return itemService.suggestItemNames(prefix, Math.min(limit, MAX_SUGGESTIONS));
+    }
 }
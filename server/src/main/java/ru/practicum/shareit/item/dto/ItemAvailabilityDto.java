@@ -0,0 +1,20 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+//available - вещь можно арендовать на период: она доступна и не занята подтвержденной арендой.
+//requested - на период уже есть запросы, ожидающие ответа владельца
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemAvailabilityDto {
+    private Integer itemId;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private boolean available;
+    private boolean requested;
+}
@@ -24,7 +24,7 @@ public class ItemMapper {
         return item;
     }
 
-    public static ItemDto toItemDto(Item item, User owner, Collection<Booking> bookingList,
+    public static ItemDto toItemDto(Item item, User owner, Booking lastBooking, Booking nextBooking,
                                     Collection<CommentResponseDto> commentResponseList) {
         ItemDto itemDto = new ItemDto();
         itemDto.setName(item.getName());
@@ -33,10 +33,8 @@ public class ItemMapper {
         itemDto.setOwner(owner);
         itemDto.setAvailable(item.isAvailable());
         itemDto.setRequestId(item.getRequestId());
-        if (bookingList.size() >= 2) {
-            itemDto.setLastBooking(new ArrayList<>(bookingList).get(0));
-            itemDto.setNextBooking(new ArrayList<>(bookingList).get(1));
-        }
+        itemDto.setLastBooking(lastBooking);
+        itemDto.setNextBooking(nextBooking);
         if (commentResponseList.size() != 0) {
             itemDto.setComments(commentResponseList);
         } else {
@@ -1,5 +1,6 @@
 package ru.practicum.shareit.item.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
@@ -16,8 +17,11 @@ import java.util.Objects;
 @Entity
 @Table(name = "items", schema = "public")
 public class Item {
+    //Id выдаются блоками из последовательности (V5__add_id_sequences.sql): без обращения к БД на каждую вставку
+    //и без IDENTITY, при котором Hibernate не объединяет вставки в пакеты
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "items_seq")
+    @SequenceGenerator(name = "items_seq", sequenceName = "items_seq", allocationSize = 50)
     private Integer id;
     private String name;
     private String description;
@@ -27,6 +31,11 @@ public class Item {
     private Integer ownerId;
     @Column(name = "request_id")
     private Integer requestId;
+    //Меняется только запросами ItemRepository.updateItem, updateItemAvailable и increment*, save ее не трогает
+    //В JSON не выводится: клиенту версия приходит в ETag
+    @JsonIgnore
+    @Column(insertable = false, updatable = false)
+    private long version;
 
     @Override
     public boolean equals(Object o) {
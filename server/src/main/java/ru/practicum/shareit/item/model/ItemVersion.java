@@ -0,0 +1,8 @@
+package ru.practicum.shareit.item.model;
+
+//Версия карточки вещи и ее владелец - все, что нужно для ETag, без загрузки вещи
+public interface ItemVersion {
+    Integer getOwnerId();
+
+    long getVersion();
+}
@@ -11,5 +11,7 @@ public interface CommentRepository extends JpaRepository<Comment, Integer> {
 
     Collection<Comment> getCommentsByItemId(Integer itemId);
 
+    Collection<Comment> getCommentsByItemIdIn(Collection<Integer> itemIds);
+
 
 }
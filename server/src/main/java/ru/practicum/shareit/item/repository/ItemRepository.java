@@ -3,12 +3,24 @@ package ru.practicum.shareit.item.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemVersion;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.stream.ChunkedReader;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ItemRepository extends JpaRepository<Item, Integer> {
@@ -17,19 +29,50 @@ public interface ItemRepository extends JpaRepository<Item, Integer> {
 
     Page<Item> findItemsByOwnerId(Integer ownerId, Pageable pageable);
 
-    @Query("select i from Item i " +
-            "where i.available = ?2 and upper(i.name) like upper(concat('%', ?1, '%')) " +
-            "or i.available = ?2 and upper(i.description) like upper(concat('%', ?1, '%'))")
-    Collection<Item> searchByText(String text, Boolean access);
+    //Вещи владельца сразу в порядке getAllItemsOwner: по началу последней подтвержденной аренды,
+    //вещи без аренд в конце. Сортировка в бд позволяет отдавать список потоком, не собирая его в памяти
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = ChunkedReader.FETCH_SIZE))
+    @Query(value = "select i.* from items i left join (select b.item_id, max(b.start_date) as last_start " +
+            "from bookings b where b.status = 'APPROVED' and b.start_date < :now group by b.item_id) lb " +
+            "on lb.item_id = i.id where i.owner_id = :ownerId order by lb.last_start desc nulls last, i.id",
+            nativeQuery = true)
+    Stream<Item> streamItemsByOwnerId(@Param("ownerId") Integer ownerId, @Param("now") LocalDateTime now);
 
-    @Query("select i from Item i " +
-            "where i.available = ?2 and upper(i.name) like upper(concat('%', ?1, '%')) " +
-            "or i.available = ?2 and upper(i.description) like upper(concat('%', ?1, '%'))")
-    Page<Item> searchByText(String text, Boolean access, Pageable pageable);
+    @Transactional
+    @Modifying
+    @Query("update Item i set i.available = ?2, i.version = i.version + 1 where i.id = ?1")
+    void updateItemAvailable(Integer itemId, boolean available);
 
-    @Query("select distinct i from Item i where i.requestId in :currentIds")
-    Collection<Item> getItemsByRequestIds(@Param("currentIds") Collection<Integer> requestId);
+    @Query("select i.ownerId as ownerId, i.version as version from Item i where i.id = ?1")
+    Optional<ItemVersion> findVersionById(Integer itemId);
 
-    @Query("select distinct i from Item i where i.requestId = ?1")
-    Collection<Item> getItemsByRequestId(Integer requestId);
+    //Вещь и ее версия меняются одним запросом, поэтому ETag не отстает от содержимого.
+    //Владелец вещи не меняется, версия - колонка только для чтения (см. Item.version)
+    @Transactional
+    @Modifying
+    @Query("update Item i set i.name = :#{#item.name}, i.description = :#{#item.description}, " +
+            "i.available = :#{#item.available}, i.requestId = :#{#item.requestId}, i.version = i.version + 1 " +
+            "where i.id = :#{#item.id}")
+    int updateItem(@Param("item") Item item);
+
+    //Версия карточки вещи: растет при изменении вещи, ее комментариев и подтвержденных аренд
+    @Transactional
+    @Modifying
+    @Query("update Item i set i.version = i.version + 1 where i.id = ?1")
+    void incrementVersion(Integer itemId);
+
+    //Имя пользователя видно в карточках его вещей (владелец) и вещей с его комментариями (автор)
+    @Transactional
+    @Modifying
+    @Query("update Item i set i.version = i.version + 1 " +
+            "where i.ownerId = ?1 or i.id in (select c.itemId from Comment c where c.authorId = ?1)")
+    void incrementVersionsForUser(Integer userId);
+
+    @Query("select new ru.practicum.shareit.item.dto.ItemSuggestionDto(i.id, i.name) from Item i where i.available = true")
+    List<ItemSuggestionDto> findAvailableItemNames();
+
+    //Ответы на запросы читаются сразу в ItemRequestDto, без загрузки сущностей Item
+    @Query("select new ru.practicum.shareit.request.dto.ItemRequestDto(i.id, i.name, i.description, i.available, " +
+            "i.requestId) from Item i where i.requestId in :requestIds order by i.requestId, i.id")
+    List<ItemRequestDto> getRequestAnswers(@Param("requestIds") Collection<Integer> requestIds);
 }
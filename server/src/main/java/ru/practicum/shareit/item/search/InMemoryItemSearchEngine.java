@@ -0,0 +1,184 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.availability.ItemAvailabilityIndex;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+//Инвертированный индекс в памяти процесса: слово -> (id вещи -> вес).
+//Используется в тестах и там, где нет PostgreSQL. Индекс строится при старте и обновляется
+//из ItemServiceImpl при каждом сохранении вещи. Занятость вещей на период берется из ItemAvailabilityIndex
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "shareit.search.engine", havingValue = "memory")
+public class InMemoryItemSearchEngine implements ItemSearchEngine {
+    private static final float NAME_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    //Полное совпадение слова ценится выше, чем совпадение по префиксу
+    private static final float EXACT_MATCH_BOOST = 2f;
+    private static final int MIN_AVAILABILITY_CHUNK = 32;
+    private static final int MAX_AVAILABILITY_CHUNK = 1000;
+    private static final Comparator<Map.Entry<Integer, Float>> BY_RELEVANCE =
+            Map.Entry.<Integer, Float>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
+
+    private final ItemRepository itemRepository;
+    private final ItemAvailabilityIndex itemAvailabilityIndex;
+    private final NavigableMap<String, Map<Integer, Float>> postings = new TreeMap<>();
+    private final Map<Integer, Map<String, Float>> itemTokens = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    @Override
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            itemTokens.clear();
+            itemRepository.findAll().forEach(this::put);
+            log.info("Поисковый индекс построен, вещей в индексе {}", itemTokens.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Item item) {
+        lock.writeLock().lock();
+        try {
+            put(item);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Item> search(String text, int offset, int limit) {
+        return loadItems(next(rank(text), offset, limit));
+    }
+
+    //Занятость проверяется по ItemAvailabilityIndex пачками в порядке релевантности, пока не наберется
+    //страница, поэтому аренды вещей дальше по списку не загружаются
+    @Override
+    public List<Item> searchAvailable(String text, LocalDateTime start, LocalDateTime end, int offset, int limit) {
+        Iterator<Integer> ranked = rank(text);
+        long needed = (long) offset + limit;
+        int chunkSize = (int) Math.min(Math.max(needed * 2, MIN_AVAILABILITY_CHUNK), MAX_AVAILABILITY_CHUNK);
+        List<Integer> free = new ArrayList<>();
+        while (ranked.hasNext() && free.size() < needed) {
+            List<Integer> chunk = next(ranked, 0, chunkSize);
+            Set<Integer> booked = itemAvailabilityIndex.findBooked(chunk, start, end);
+            chunk.stream().filter(id -> !booked.contains(id)).forEach(free::add);
+        }
+        return loadItems(free.stream().skip(offset).limit(limit).collect(Collectors.toList()));
+    }
+
+    //Id вещей, в которых есть все слова запроса, от самой релевантной. Куча упорядочивает вещи по мере
+    //чтения, поэтому для первых страниц не нужно сортировать все найденные вещи
+    private Iterator<Integer> rank(String text) {
+        List<String> queryTokens = ItemSearchTokenizer.tokenize(text);
+        if (queryTokens.isEmpty()) return Collections.emptyIterator();
+        Map<Integer, Float> scores = null;
+        lock.readLock().lock();
+        try {
+            for (String queryToken : queryTokens) {
+                Map<Integer, Float> tokenScores = scoreToken(queryToken);
+                //В результат попадают только вещи, в которых есть все слова запроса
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    scores.replaceAll((id, score) -> score + tokenScores.get(id));
+                }
+                if (scores.isEmpty()) return Collections.emptyIterator();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        PriorityQueue<Map.Entry<Integer, Float>> ranked = new PriorityQueue<>(scores.size(), BY_RELEVANCE);
+        ranked.addAll(scores.entrySet());
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !ranked.isEmpty();
+            }
+
+            @Override
+            public Integer next() {
+                return ranked.remove().getKey();
+            }
+        };
+    }
+
+    private static List<Integer> next(Iterator<Integer> ranked, long skip, long limit) {
+        List<Integer> ids = new ArrayList<>();
+        for (long i = 0; i < skip && ranked.hasNext(); i++) {
+            ranked.next();
+        }
+        while (ids.size() < limit && ranked.hasNext()) {
+            ids.add(ranked.next());
+        }
+        return ids;
+    }
+
+    private List<Item> loadItems(List<Integer> ids) {
+        if (ids.isEmpty()) return new ArrayList<>();
+        Map<Integer, Item> items = itemRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        return ids.stream().map(items::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private Map<Integer, Float> scoreToken(String queryToken) {
+        Map<Integer, Float> scores = new HashMap<>();
+        postings.subMap(queryToken, true, queryToken + Character.MAX_VALUE, false)
+                .forEach((token, items) -> {
+                    float boost = token.equals(queryToken) ? EXACT_MATCH_BOOST : 1f;
+                    items.forEach((id, weight) -> scores.merge(id, weight * boost, Float::sum));
+                });
+        return scores;
+    }
+
+    private void put(Item item) {
+        remove(item.getId());
+        if (!item.isAvailable()) return;
+        Map<String, Float> tokens = new HashMap<>();
+        ItemSearchTokenizer.tokenize(item.getName()).forEach(token -> tokens.merge(token, NAME_WEIGHT, Float::sum));
+        ItemSearchTokenizer.tokenize(item.getDescription())
+                .forEach(token -> tokens.merge(token, DESCRIPTION_WEIGHT, Float::sum));
+        tokens.forEach((token, weight) -> postings.computeIfAbsent(token, key -> new HashMap<>())
+                .put(item.getId(), weight));
+        itemTokens.put(item.getId(), tokens);
+    }
+
+    private void remove(Integer itemId) {
+        Map<String, Float> tokens = itemTokens.remove(itemId);
+        if (tokens == null) return;
+        tokens.keySet().forEach(token -> {
+            Map<Integer, Float> items = postings.get(token);
+            items.remove(itemId);
+            if (items.isEmpty()) postings.remove(token);
+        });
+    }
+}
@@ -0,0 +1,12 @@
+package ru.practicum.shareit.item.search;
+
+import ru.practicum.shareit.item.model.Item;
+
+//Индекс вещей, который живет рядом с бд и должен узнавать о каждом изменении вещи
+public interface ItemIndex {
+
+    //Вызывается после каждого сохранения вещи, недоступные вещи из индекса удаляются
+    void index(Item item);
+
+    void rebuild();
+}
@@ -0,0 +1,78 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+//Префиксный индекс по словам названий доступных вещей для автодополнения.
+//Ключ - слово и id вещи, поэтому подсказки по префиксу - это один упорядоченный проход по подкарте.
+//Чтение идет без блокировок, изменения индекса выполняются по одному
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemNameSuggester implements ItemIndex {
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final ItemRepository itemRepository;
+    private final ConcurrentSkipListMap<String, ItemSuggestionDto> entries = new ConcurrentSkipListMap<>();
+    private final Map<Integer, List<String>> itemKeys = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    @Override
+    public synchronized void rebuild() {
+        entries.clear();
+        itemKeys.clear();
+        itemRepository.findAvailableItemNames().forEach(this::put);
+        log.info("Индекс подсказок построен, вещей в индексе {}", itemKeys.size());
+    }
+
+    @Override
+    public synchronized void index(Item item) {
+        remove(item.getId());
+        if (item.isAvailable()) {
+            put(new ItemSuggestionDto(item.getId(), item.getName()));
+        }
+    }
+
+    //Последнее слово запроса ищется по префиксу, остальные слова должны целиком встречаться в названии
+    public List<ItemSuggestionDto> suggest(String prefix, int limit) {
+        List<String> tokens = ItemSearchTokenizer.tokenize(prefix);
+        if (tokens.isEmpty() || limit <= 0) return new ArrayList<>();
+        String last = tokens.get(tokens.size() - 1);
+        List<String> words = tokens.subList(0, tokens.size() - 1);
+        Map<Integer, ItemSuggestionDto> suggestions = new LinkedHashMap<>();
+        for (ItemSuggestionDto suggestion : entries.subMap(last, last + Character.MAX_VALUE).values()) {
+            if (words.isEmpty() || ItemSearchTokenizer.tokenize(suggestion.getName()).containsAll(words)) {
+                suggestions.putIfAbsent(suggestion.getId(), suggestion);
+                if (suggestions.size() == limit) break;
+            }
+        }
+        return new ArrayList<>(suggestions.values());
+    }
+
+    private void put(ItemSuggestionDto suggestion) {
+        List<String> keys = new ArrayList<>();
+        for (String token : ItemSearchTokenizer.tokenize(suggestion.getName())) {
+            String key = token + KEY_SEPARATOR + suggestion.getId();
+            entries.put(key, suggestion);
+            keys.add(key);
+        }
+        itemKeys.put(suggestion.getId(), keys);
+    }
+
+    private void remove(Integer itemId) {
+        List<String> keys = itemKeys.remove(itemId);
+        if (keys != null) keys.forEach(entries::remove);
+    }
+}
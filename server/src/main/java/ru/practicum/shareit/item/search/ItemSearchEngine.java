@@ -0,0 +1,18 @@
+package ru.practicum.shareit.item.search;
+
+import ru.practicum.shareit.item.model.Item;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+//Полнотекстовый поиск по названию и описанию доступных вещей.
+//Реализация выбирается свойством shareit.search.engine (postgres или memory)
+public interface ItemSearchEngine extends ItemIndex {
+
+    //Возвращает доступные вещи, в которых есть все слова запроса (по префиксу), в порядке релевантности
+    List<Item> search(String text, int offset, int limit);
+
+    //То же, но только вещи без подтвержденных аренд, пересекающихся с периодом [start, end).
+    //Страница отбирается после проверки занятости
+    List<Item> searchAvailable(String text, LocalDateTime start, LocalDateTime end, int offset, int limit);
+}
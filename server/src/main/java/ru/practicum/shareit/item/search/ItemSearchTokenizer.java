@@ -0,0 +1,23 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+@UtilityClass
+public class ItemSearchTokenizer {
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    //Разбивает текст на слова в нижнем регистре, знаки препинания и служебные символы отбрасываются
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        for (String token : SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,78 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+//Поиск по столбцу items.search_vector (tsvector с GIN-индексом, см. db/migration/postgresql).
+//Столбец генерируется самой бд, поэтому синхронизировать индекс из приложения не нужно
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "shareit.search.engine", havingValue = "postgres", matchIfMissing = true)
+public class PostgresItemSearchEngine implements ItemSearchEngine {
+    private static final String SEARCH_QUERY = "select i.* from items i, to_tsquery('simple', :query) q " +
+            "where i.is_available = true and i.search_vector @@ q " +
+            "order by ts_rank(i.search_vector, q) desc, i.id";
+
+    //Пересечение ищется по GiST-индексу ограничения BOOKINGS_APPROVED_NO_OVERLAP:
+    //условие повторяет его выражение tsrange(start_date, end_date) и фильтр по статусу
+    private static final String SEARCH_AVAILABLE_QUERY = "select i.* from items i, to_tsquery('simple', :query) q " +
+            "where i.is_available = true and i.search_vector @@ q " +
+            "and not exists (select 1 from bookings b where b.item_id = i.id and b.status = 'APPROVED' " +
+            "and tsrange(b.start_date, b.end_date) && tsrange(cast(:start as timestamp), cast(:end as timestamp))) " +
+            "order by ts_rank(i.search_vector, q) desc, i.id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<Item> search(String text, int offset, int limit) {
+        String query = toTsQuery(text);
+        if (query.isEmpty()) return new ArrayList<>();
+        log.debug("Полнотекстовый поиск {}", query);
+        return entityManager.createNativeQuery(SEARCH_QUERY, Item.class)
+                .setParameter("query", query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<Item> searchAvailable(String text, LocalDateTime start, LocalDateTime end, int offset, int limit) {
+        String query = toTsQuery(text);
+        if (query.isEmpty()) return new ArrayList<>();
+        log.debug("Полнотекстовый поиск {} свободных с {} по {}", query, start, end);
+        return entityManager.createNativeQuery(SEARCH_AVAILABLE_QUERY, Item.class)
+                .setParameter("query", query)
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public void index(Item item) {
+    }
+
+    @Override
+    public void rebuild() {
+    }
+
+    //Токены содержат только буквы и цифры, поэтому синтаксис tsquery в запрос не попадет
+    private static String toTsQuery(String text) {
+        return ItemSearchTokenizer.tokenize(text).stream()
+                .map(token -> token + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+}
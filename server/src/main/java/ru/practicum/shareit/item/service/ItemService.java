@@ -1,9 +1,13 @@
 package ru.practicum.shareit.item.service;
 
 import ru.practicum.shareit.item.dto.CommentResponseDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.stream.ChunkedResult;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 
 public interface ItemService {
@@ -14,15 +18,25 @@ public interface ItemService {
 
     ItemDto getItemById(Integer itemId, Integer userId);
 
+    String getItemEtag(Integer itemId, Integer userId);
+
     Collection<ItemDto> getAllItemsOwner(Integer userId);
 
+    ChunkedResult<ItemDto> streamAllItemsOwner(Integer userId);
+
     Collection<ItemDto> getAllItemsWithPagination(Integer userId, Integer from, Integer size);
 
     Collection<Item> searchItemByText(Integer userId, String text);
 
     Collection<Item> searchItemByTextWithPagination(Integer userId, Integer from, Integer size, String text);
 
-    void changeItemStatus(Integer itemId, Integer userId, boolean approved);
+    //from = null - без пагинации
+    Collection<Item> searchAvailableItems(Integer userId, String text, LocalDateTime start, LocalDateTime end,
+                                          Integer from, Integer size);
+
+    ItemAvailabilityDto getItemAvailability(Integer itemId, Integer userId, LocalDateTime start, LocalDateTime end);
+
+    Collection<ItemSuggestionDto> suggestItemNames(String prefix, Integer limit);
 
     CommentResponseDto createComment(Integer userId, Integer itemId, String text);
 
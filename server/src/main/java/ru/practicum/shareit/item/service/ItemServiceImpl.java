@@ -6,18 +6,30 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.availability.ItemAvailabilityIndex;
+import ru.practicum.shareit.booking.availability.PeriodOccupancy;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingCounts;
 import ru.practicum.shareit.booking.repository.BookingRepository;
 import ru.practicum.shareit.exception.RequestError;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.CommentResponseDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
 import ru.practicum.shareit.item.mapper.CommentMapper;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemVersion;
 import ru.practicum.shareit.item.repository.CommentRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.ItemIndex;
+import ru.practicum.shareit.item.search.ItemNameSuggester;
+import ru.practicum.shareit.item.search.ItemSearchEngine;
+import ru.practicum.shareit.stream.ChunkedReader;
+import ru.practicum.shareit.stream.ChunkedResult;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 import ru.practicum.shareit.user.service.UserService;
@@ -35,17 +47,22 @@ public class ItemServiceImpl implements ItemService {
     private final UserService userService;
     private final BookingRepository bookingRepository;
     private final CommentRepository commentRepository;
-    private Integer id = 1;
+    private final ItemSearchEngine itemSearchEngine;
+    private final ItemNameSuggester itemNameSuggester;
+    private final List<ItemIndex> itemIndexes;
+    private final ChunkedReader chunkedReader;
+    private final ItemAvailabilityIndex itemAvailabilityIndex;
 
+    //Id назначает Hibernate из последовательности в БД, id из запроса не используется
     @Override
     public Item createItem(Integer userId, ItemDto itemDto) {
-        itemDto.setId(id);
         User user = userService.getUserById(userId);
         Item item = ItemMapper.toItem(itemDto);
+        item.setId(null);
         item.setOwnerId(user.getId());
-        id++;
-        log.info("Добавлен новый предмет с ID = {}", item.getId());
-        return itemRepository.save(item);
+        Item saved = saveItem(item);
+        log.info("Добавлен новый предмет с ID = {}", saved.getId());
+        return saved;
     }
 
     @Override
@@ -59,22 +76,22 @@ public class ItemServiceImpl implements ItemService {
             log.info("Пользователь {} обновил статус предмета {}", userId, itemId);
             ItemDto updateItem = getItemById(itemId, userId);
             updateItem.setAvailable(itemDto.getAvailable());
-            return itemRepository.save(ItemMapper.toItem(updateItem));
+            return saveItem(ItemMapper.toItem(updateItem));
         }
         if (itemDto.getAvailable() == null && itemDto.getDescription() == null) {
             log.info("Пользователь {} обновил название предмета {}", userId, itemId);
             ItemDto updateItem = getItemById(itemId, userId);
             updateItem.setName(itemDto.getName());
-            return itemRepository.save(ItemMapper.toItem(updateItem));
+            return saveItem(ItemMapper.toItem(updateItem));
         }
         if (itemDto.getAvailable() == null && itemDto.getName() == null) {
             log.info("Пользователь {} обновил описание о предмете {}", userId, itemId);
             ItemDto updateItem = getItemById(itemId, userId);
             updateItem.setDescription(itemDto.getDescription());
-            return itemRepository.save(ItemMapper.toItem(updateItem));
+            return saveItem(ItemMapper.toItem(updateItem));
         }
         log.info("Пользователь {} обновил информацию о предмете {}", userId, itemId);
-        return itemRepository.save(item);
+        return saveItem(item);
     }
 
     @Override
@@ -87,31 +104,56 @@ public class ItemServiceImpl implements ItemService {
         log.info("Пользователь посмотрел информацию о предмете {}", itemId);
         User user = userService.getUserById(item.getOwnerId());
         if (Objects.equals(item.getOwnerId(), userId)) {
-            return ItemMapper.toItemDto(item, user,
-                    bookingRepository.getBookingsByItemIdOrderByStartAsc(itemId), getCommentList(itemId));
+            LocalDateTime now = LocalDateTime.now();
+            return toItemDto(item, user, bookingRepository.getLastAndNextBookingsByItemIds(List.of(itemId), now),
+                    now, getCommentList(itemId));
         }
-        return ItemMapper.toItemDto(item, user, new ArrayList<>(), getCommentList(itemId));
+        return ItemMapper.toItemDto(item, user, null, null, getCommentList(itemId));
+    }
+
+    //ETag карточки вещи считается по версии строки, без сборки ItemDto. Владелец видит еще последнюю
+    //и следующую аренду, которые меняются и со временем, без записи в бд, поэтому для него в ETag
+    //входит число подтвержденных и уже начавшихся аренд
+    @Override
+    public String getItemEtag(Integer itemId, Integer userId) {
+        ItemVersion version = itemRepository.findVersionById(itemId).orElse(null);
+        if (version == null) {
+            log.warn("Пользователь запросил информацию о несуществующем предмете {}", itemId);
+            throw new RequestError(HttpStatus.NOT_FOUND, "Предмет не найден");
+        }
+        String etag = "\"item-" + itemId + "-" + version.getVersion();
+        if (Objects.equals(version.getOwnerId(), userId)) {
+            BookingCounts counts = bookingRepository.countApprovedBookings(itemId, LocalDateTime.now());
+            etag += "-" + counts.getApproved() + "-" + counts.getStarted();
+        }
+        return etag + "\"";
     }
 
     @Override
     public Collection<ItemDto> getAllItemsOwner(Integer userId) {
         User user = userService.getUserById(userId);
-        Collection<ItemDto> itemDtoCollections = new ArrayList<>();
         log.info("Получен запрос на вывод всего списка вещей пользователя {}", user);
         Collection<Item> items = itemRepository.findItemsByOwnerId(userId);
-        items.forEach(item -> itemDtoCollections.add(getItemById(item.getId(), user.getId())));
-        return getSortedItemsList(itemDtoCollections, userId);
+        return getSortedItemsList(toOwnerItemDtos(items, user));
+    }
+
+    //Потоковый вывод: порядок задает запрос к бд, аренды и комментарии догружаются на каждую порцию вещей
+    @Override
+    public ChunkedResult<ItemDto> streamAllItemsOwner(Integer userId) {
+        User user = userService.getUserById(userId);
+        log.info("Получен запрос на потоковый вывод списка вещей пользователя {}", user);
+        LocalDateTime now = LocalDateTime.now();
+        return chunkedReader.read(() -> itemRepository.streamItemsByOwnerId(userId, now),
+                items -> toOwnerItemDtos(items, user));
     }
 
     @Override
     public Collection<ItemDto> getAllItemsWithPagination(Integer userId, Integer from, Integer size) {
         User user = userService.getUserById(userId);
-        Collection<ItemDto> itemDtoCollections = new ArrayList<>();
         from = from / size;
         log.info("Получен запрос на вывод списка вещей пользователя {} с {} по {} страницу", user, from, size);
         Page<Item> items = itemRepository.findItemsByOwnerId(userId, PageRequest.of(from, size));
-        items.forEach(item -> itemDtoCollections.add(getItemById(item.getId(), user.getId())));
-        return getSortedItemsList(itemDtoCollections, userId);
+        return getSortedItemsList(toOwnerItemDtos(items.getContent(), user));
     }
 
     @Override
@@ -119,7 +161,7 @@ public class ItemServiceImpl implements ItemService {
         User user = userService.getUserById(userId);
         log.info("Получен запрос на поиск {} от пользователя {}", text, user);
         if (text.isEmpty()) return new ArrayList<>();
-        return itemRepository.searchByText(text, true);
+        return itemSearchEngine.search(text, 0, Integer.MAX_VALUE);
     }
 
     @Override
@@ -128,19 +170,46 @@ public class ItemServiceImpl implements ItemService {
         from = from / size;
         log.info("Получен запрос на поиск {} от пользователя {}", text, user);
         if (text.isEmpty()) return new ArrayList<>();
-        Page<Item> pageItem = itemRepository.searchByText(text, true, PageRequest.of(from, size));
-        return pageItem.toList();
+        return itemSearchEngine.search(text, from * size, size);
+    }
+
+    //Занятость проверяет поисковый движок, поэтому страница отбирается уже среди свободных вещей
+    @Override
+    public Collection<Item> searchAvailableItems(Integer userId, String text, LocalDateTime start, LocalDateTime end,
+                                                 Integer from, Integer size) {
+        User user = userService.getUserById(userId);
+        checkRentalPeriod(start, end);
+        log.info("Получен запрос на поиск {} свободных с {} по {} от пользователя {}", text, start, end, user);
+        if (text.isEmpty()) return new ArrayList<>();
+        if (from == null) return itemSearchEngine.searchAvailable(text, start, end, 0, Integer.MAX_VALUE);
+        return itemSearchEngine.searchAvailable(text, start, end, from / size * size, size);
+    }
+
+    @Override
+    public ItemAvailabilityDto getItemAvailability(Integer itemId, Integer userId, LocalDateTime start,
+                                                   LocalDateTime end) {
+        userService.getUserById(userId);
+        checkRentalPeriod(start, end);
+        Item item = itemRepository.findById(itemId).orElse(null);
+        if (item == null) {
+            log.warn("Пользователь запросил занятость несуществующего предмета {}", itemId);
+            throw new RequestError(HttpStatus.NOT_FOUND, "Предмет не найден");
+        }
+        PeriodOccupancy occupancy = itemAvailabilityIndex.getOccupancy(itemId, start, end);
+        log.info("Пользователь {} проверил занятость предмета {} с {} по {}", userId, itemId, start, end);
+        return new ItemAvailabilityDto(itemId, start, end, item.isAvailable() && !occupancy.isBooked(),
+                occupancy.isRequested());
     }
 
+    //Вызывается на каждое нажатие клавиши, поэтому без логирования и обращений к бд
     @Override
-    public void changeItemStatus(Integer itemId, Integer userId, boolean approved) {
-        ItemDto item = getItemById(itemId, userId);
-        item.setAvailable(approved);
-        log.info("Статус {} изменен на {}", item, approved);
-        itemRepository.save(ItemMapper.toItem(item));
+    public Collection<ItemSuggestionDto> suggestItemNames(String prefix, Integer limit) {
+        return itemNameSuggester.suggest(prefix, limit);
     }
 
+    //Отзыв и новая версия вещи сохраняются в одной транзакции, чтобы ETag не отставал от отзывов
     @Override
+    @Transactional
     public CommentResponseDto createComment(Integer userId, Integer itemId, String text) {
         if (text.isEmpty()) {
             log.warn("Пользователь {} пытался оставить пустой комментарий {}", userId, itemId);
@@ -156,11 +225,13 @@ public class ItemServiceImpl implements ItemService {
             log.warn("Ошибка при добавлении комментария, пользователь {} не найден", userId);
             throw new RequestError(HttpStatus.BAD_REQUEST, "Пользователь c ID = " + userId + " не найден");
         }
-        if (!checkUserIsBookerForItem(userId, itemId)) {
+        //Одним агрегатным запросом проверяю и факт аренды, и то, что хотя бы одна аренда закончилась
+        LocalDateTime firstBookingEnd = bookingRepository.getFirstBookingEnd(userId, itemId);
+        if (firstBookingEnd == null) {
             log.warn("Ошибка при добавлении комментария, пользователь {} не брал в аренду вещь {}", user, item);
             throw new RequestError(HttpStatus.BAD_REQUEST, "Пользователь не брал вещь в аренду");
         }
-        if (!checkCreatedCommentAfterBooking(userId, itemId)) {
+        if (!firstBookingEnd.isBefore(LocalDateTime.now())) {
             log.warn("Ошибка при добавлении комментария, пользователь {} не закончил аренду {}", user, item);
             throw new RequestError(HttpStatus.BAD_REQUEST, "Вещь все еще находится в аренде у пользователя");
         }
@@ -171,19 +242,33 @@ public class ItemServiceImpl implements ItemService {
 
     @Override
     public Collection<CommentResponseDto> getCommentList(Integer itemId) {
-        Item item = itemRepository.findById(itemId).orElse(null);
-        Collection<CommentResponseDto> commentResponseList = new ArrayList<>();
-        Collection<Comment> comments = commentRepository.getCommentsByItemId(itemId);
-        Collection<Integer> authorIds = comments.stream().map(Comment::getAuthorId)
-                .collect(Collectors.toList());
-        Map<Integer, User> userMap = userRepository.findByUserIds(authorIds)
-                .stream().collect(Collectors.toMap(User::getId, u -> u));
+        return getCommentsByItemIds(List.of(itemId)).getOrDefault(itemId, new ArrayList<>());
+    }
 
-        for (Comment comment : comments) {
-            CommentDto commentDto = CommentMapper.commentDto(comment, userMap.get(comment.getAuthorId()), item);
-            commentResponseList.add(CommentMapper.commentDtoToResponseDto(commentDto));
+    //Все изменения вещи проходят здесь, чтобы индексы поиска и подсказок не отставали от бд
+    //Новая вещь получает начальную версию из бд, изменение существующей увеличивает ее тем же запросом
+    private Item saveItem(Item item) {
+        if (item.getId() == null) {
+            item = itemRepository.save(item);
+        } else if (itemRepository.updateItem(item) == 0) {
+            log.warn("Предмет {} удален до сохранения изменений", item.getId());
+            throw new RequestError(HttpStatus.NOT_FOUND, "Предмет не найден");
+        }
+        Item saved = item;
+        itemIndexes.forEach(index -> index.index(saved));
+        return saved;
+    }
+
+    //Индекс занятости хранит только незакончившиеся аренды, поэтому период не может начинаться в прошлом
+    private void checkRentalPeriod(LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null) {
+            log.warn("Не указан период аренды: с {} по {}", start, end);
+            throw new RequestError(HttpStatus.BAD_REQUEST, "Нужно указать начало и окончание аренды");
+        }
+        if (!start.isBefore(end) || start.isBefore(LocalDateTime.now())) {
+            log.warn("Неверно указан период аренды: с {} по {}", start, end);
+            throw new RequestError(HttpStatus.BAD_REQUEST, "Некорректно указано время аренды");
         }
-        return commentResponseList;
     }
 
     private void checkUserIsOwner(Integer itemId, Integer userId) {
@@ -201,46 +286,55 @@ public class ItemServiceImpl implements ItemService {
         }
     }
 
-    private Collection<ItemDto> getSortedItemsList(Collection<ItemDto> itemDtoCollection, Integer userId) {
-        Comparator<Booking> bookingComparator = Comparator.comparing(Booking::getStart).reversed();
-        TreeSet<Booking> bookingSortedSet = new TreeSet<>(bookingComparator);
-        Collection<ItemDto> itemSortedCollection = new ArrayList<>();
-        Collection<ItemDto> itemWithEmptyStart = new ArrayList<>();
+    //Последние/следующие аренды, комментарии и авторы комментариев загружаются сразу для всех вещей,
+    //поэтому число запросов не зависит от количества вещей у владельца
+    private Collection<ItemDto> toOwnerItemDtos(Collection<Item> items, User owner) {
+        if (items.isEmpty()) return new ArrayList<>();
+        Set<Integer> itemIds = items.stream().map(Item::getId).collect(Collectors.toSet());
+        LocalDateTime now = LocalDateTime.now();
+        Map<Integer, List<Booking>> bookings = bookingRepository.getLastAndNextBookingsByItemIds(itemIds, now)
+                .stream().collect(Collectors.groupingBy(Booking::getItemId));
+        Map<Integer, List<CommentResponseDto>> comments = getCommentsByItemIds(itemIds);
+        return items.stream()
+                .map(item -> toItemDto(item, owner, bookings.getOrDefault(item.getId(), List.of()), now,
+                        comments.getOrDefault(item.getId(), List.of())))
+                .collect(Collectors.toList());
+    }
 
-        itemDtoCollection.forEach(itemDto -> {
-            Booking booking = itemDto.getLastBooking();
-            if (booking != null) {
-                bookingSortedSet.add(booking);
+    //Запрос возвращает не больше одной начавшейся и одной будущей аренды, здесь они только разделяются
+    private ItemDto toItemDto(Item item, User owner, Collection<Booking> lastAndNextBookings, LocalDateTime now,
+                              Collection<CommentResponseDto> comments) {
+        Booking lastBooking = null;
+        Booking nextBooking = null;
+        for (Booking booking : lastAndNextBookings) {
+            if (booking.getStart().isBefore(now)) {
+                lastBooking = booking;
             } else {
-                itemWithEmptyStart.add(itemDto);
+                nextBooking = booking;
             }
-        });
-
-        bookingSortedSet.forEach(booking -> {
-            ItemDto itemDto = getItemById(booking.getItemId(), userId);
-            if (itemDto != null) itemSortedCollection.add(itemDto);
-        });
-
-        if (itemSortedCollection.size() == 0) return itemDtoCollection;
-        itemSortedCollection.addAll(itemWithEmptyStart);
-        return itemSortedCollection;
+        }
+        return ItemMapper.toItemDto(item, owner, lastBooking, nextBooking, comments);
     }
 
-    private boolean checkUserIsBookerForItem(Integer userId, Integer itemId) {
-        Collection<Booking> bookingList = bookingRepository.getBookingsByItemIdOrderByStartAsc(itemId);
-        for (Booking booking : bookingList) {
-            if (Objects.equals(booking.getBookerId(), userId)) return true;
-        }
-        return false;
+    private Map<Integer, List<CommentResponseDto>> getCommentsByItemIds(Collection<Integer> itemIds) {
+        Collection<Comment> comments = commentRepository.getCommentsByItemIdIn(itemIds);
+        if (comments.isEmpty()) return Map.of();
+        Set<Integer> authorIds = comments.stream().map(Comment::getAuthorId).collect(Collectors.toSet());
+        Map<Integer, User> authors = userRepository.findByUserIds(authorIds).stream()
+                .collect(Collectors.toMap(User::getId, u -> u));
+        return comments.stream().collect(Collectors.groupingBy(Comment::getItemId, Collectors.mapping(comment ->
+                        CommentMapper.commentDtoToResponseDto(
+                                CommentMapper.commentDto(comment, authors.get(comment.getAuthorId()), null)),
+                Collectors.toList())));
     }
 
-    private boolean checkCreatedCommentAfterBooking(Integer userId, Integer itemId) {
-        LocalDateTime createdTime = LocalDateTime.now();
-        Collection<Booking> bookings = bookingRepository.getBookingsByBookerIdAndItemId(userId, itemId);
-        for (Booking booking : bookings) {
-            if (booking.getEnd().isBefore(createdTime)) return true;
-        }
-        return false;
+    //Сначала вещи с последней арендой по убыванию ее начала, затем остальные в исходном порядке.
+    //Сортировка устойчивая, вещи с одинаковым временем аренды не теряются
+    private Collection<ItemDto> getSortedItemsList(Collection<ItemDto> itemDtoCollection) {
+        Comparator<ItemDto> byLastBookingStart = Comparator.comparing(
+                itemDto -> itemDto.getLastBooking() == null ? null : itemDto.getLastBooking().getStart(),
+                Comparator.nullsLast(Comparator.reverseOrder()));
+        return itemDtoCollection.stream().sorted(byLastBookingStart).collect(Collectors.toList());
     }
 
     private Comment saveNewComment(Integer itemId, String text, Integer authorId) {
@@ -249,6 +343,9 @@ public class ItemServiceImpl implements ItemService {
         comment.setText(text);
         comment.setAuthorId(authorId);
         comment.setCreated(LocalDateTime.now());
-        return commentRepository.save(comment);
+        Comment saved = commentRepository.save(comment);
+        //Отзывы входят в карточку вещи, поэтому меняют ее версию
+        itemRepository.incrementVersion(itemId);
+        return saved;
     }
 }
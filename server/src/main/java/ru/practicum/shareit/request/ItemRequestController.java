@@ -1,10 +1,13 @@
 package ru.practicum.shareit.request;
 
 import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.request.dto.RequestDto;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.service.ItemRequestService;
+import ru.practicum.shareit.stream.NdjsonStreamer;
 
 import java.util.Collection;
 
@@ -14,6 +17,7 @@ import java.util.Collection;
 public class ItemRequestController {
 
     private final ItemRequestService itemRequestService;
+    private final NdjsonStreamer ndjsonStreamer;
 
     @PostMapping
     public RequestDto createItemRequest(@RequestHeader("X-Sharer-User-Id") Integer creatorId,
@@ -34,6 +38,11 @@ public class ItemRequestController {
         return itemRequestService.getItemsWithPagination(userId, from, size);
     }
 
+    @GetMapping(value = "/all", produces = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllRequestItems() {
+        return ndjsonStreamer.stream(itemRequestService.streamAllRequestItems());
+    }
+
     @GetMapping("/{requestId}")
     public RequestDto getRequestById(@RequestHeader("X-Sharer-User-Id") Integer userId,
                                      @PathVariable Integer requestId) {
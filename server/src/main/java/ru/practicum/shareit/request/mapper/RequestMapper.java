@@ -8,6 +8,7 @@ import ru.practicum.shareit.request.model.ItemRequest;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 @UtilityClass
 public class RequestMapper {
@@ -23,6 +24,16 @@ public class RequestMapper {
         return requestDto;
     }
 
+    //Ответы уже прочитаны из базы проекцией ItemRequestDto, поэтому список передается без копирования
+    public static RequestDto toRequestDtoWithAnswers(ItemRequest request, List<ItemRequestDto> answers) {
+        RequestDto requestDto = new RequestDto();
+        requestDto.setDescription(request.getDescription());
+        requestDto.setCreated(request.getCreated());
+        requestDto.setId(request.getId());
+        requestDto.setItems(answers != null ? answers : new ArrayList<>());
+        return requestDto;
+    }
+
     public static ItemRequestDto toItemRequestDto(Item item) {
         ItemRequestDto itemRequestDto = new ItemRequestDto();
         itemRequestDto.setId(item.getId());
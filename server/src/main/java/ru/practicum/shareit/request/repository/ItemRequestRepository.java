@@ -1,21 +1,31 @@
 package ru.practicum.shareit.request.repository;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.stream.ChunkedReader;
 import ru.practicum.shareit.user.model.User;
 
+import javax.persistence.QueryHint;
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ItemRequestRepository extends JpaRepository<ItemRequest, Integer> {
 
     Collection<ItemRequest> getDistinctByRequesterOrderByCreatedDesc(User requester);
 
-    @Query("SELECT ir FROM ItemRequest ir WHERE ir.requester <> ?1")
-    Page<ItemRequest> getDistinctByRequesterNotContainingOrderByCreatedDesc(User requester,
+    //Автор запроса подтягивается в том же select, иначе Hibernate дочитывает каждого автора отдельным запросом.
+    //Возвращается список, а не Page: общее число запросов не нужно, и лишний count не выполняется
+    @Query("SELECT ir FROM ItemRequest ir JOIN FETCH ir.requester WHERE ir.requester <> ?1 ORDER BY ir.created DESC")
+    List<ItemRequest> getDistinctByRequesterNotContainingOrderByCreatedDesc(User requester,
                                                                             Pageable pageable);
+
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = ChunkedReader.FETCH_SIZE))
+    @Query("SELECT ir FROM ItemRequest ir JOIN FETCH ir.requester ORDER BY ir.created DESC")
+    Stream<ItemRequest> streamAll();
 }
@@ -2,6 +2,7 @@ package ru.practicum.shareit.request.service;
 
 import ru.practicum.shareit.request.dto.RequestDto;
 import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.stream.ChunkedResult;
 
 import java.util.Collection;
 
@@ -15,5 +16,7 @@ public interface ItemRequestService {
 
     Collection<RequestDto> getAllRequestItems();
 
+    ChunkedResult<RequestDto> streamAllRequestItems();
+
     RequestDto getRequestById(Integer requestId, Integer userId);
 }
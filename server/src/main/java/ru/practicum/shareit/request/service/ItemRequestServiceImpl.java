@@ -2,23 +2,25 @@ package ru.practicum.shareit.request.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import ru.practicum.shareit.exception.RequestError;
-import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.dto.RequestDto;
 import ru.practicum.shareit.request.mapper.RequestMapper;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.stream.ChunkedReader;
+import ru.practicum.shareit.stream.ChunkedResult;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -31,6 +33,7 @@ public class ItemRequestServiceImpl implements ItemRequestService {
     private final ItemRequestRepository itemRequestRepository;
     private final ItemRepository itemRepository;
     private final UserService userService;
+    private final ChunkedReader chunkedReader;
 
     //Проверка на существование юзера происходит в getUserById
     @Override
@@ -57,9 +60,9 @@ public class ItemRequestServiceImpl implements ItemRequestService {
         User user = userService.getUserById(userId);
         from = from / size;
         log.info("Пользователь {} просматривает список запросов вещей", user);
-        Page<ItemRequest> itemRequests = itemRequestRepository
+        List<ItemRequest> itemRequests = itemRequestRepository
                 .getDistinctByRequesterNotContainingOrderByCreatedDesc(user, PageRequest.of(from, size));
-        return getItemsRequest(itemRequests.stream().collect(Collectors.toList()));
+        return getItemsRequest(itemRequests);
     }
 
     //Метод будет вызван, если не будут переданы параметры from и size
@@ -71,6 +74,13 @@ public class ItemRequestServiceImpl implements ItemRequestService {
         return getItemsRequest(allRequests);
     }
 
+    //Потоковый вывод всех запросов: ответы догружаются одним запросом на каждую порцию
+    @Override
+    public ChunkedResult<RequestDto> streamAllRequestItems() {
+        log.info("Запрошен потоковый вывод всех запросов");
+        return chunkedReader.read(itemRequestRepository::streamAll, this::getItemsRequest);
+    }
+
     @Override
     public RequestDto getRequestById(Integer requestId, Integer userId) {
         User user = userService.getUserById(userId);
@@ -79,23 +89,30 @@ public class ItemRequestServiceImpl implements ItemRequestService {
             log.warn("Пользователь {} запрос несуществующий запрос под id {}", user, requestId);
             throw new RequestError(HttpStatus.NOT_FOUND, "Запрос под ID" + requestId + " не найден");
         }
-        Collection<Item> itemRequestCollection = itemRepository.getItemsByRequestId(requestId);
-        return RequestMapper.toRequestDto(request, itemRequestCollection);
+        List<ItemRequestDto> answers = itemRepository.getRequestAnswers(List.of(requestId));
+        return RequestMapper.toRequestDtoWithAnswers(request, answers);
     }
 
     //Здесь каждому запросу request присваиваю коллекцию ответов. Метод универсальный,
-    //зависит лишь от входящего списка, который формируется в зависимости от запроса к бд
+    //зависит лишь от входящего списка, который формируется в зависимости от запроса к бд.
+    //Ответы на всю страницу запросов читаются одним запросом и раскладываются по запросам за один проход
     private Collection<RequestDto> getItemsRequest(Collection<ItemRequest> itemRequests) {
-        Collection<RequestDto> itemRequestDtos = new ArrayList<>();
-        Collection<Integer> requestIds = itemRequests.stream().map((ItemRequest::getId)).collect(Collectors.toList());
-        Map<Integer, Collection<Item>> requestMapWithAnswer = itemRepository
-                .getItemsByRequestIds(requestIds).stream().collect(Collectors.toMap(Item::getRequestId, List::of));
-        itemRequests.forEach(request -> {
-                    RequestDto requestDto = RequestMapper
-                            .toRequestDto(request, requestMapWithAnswer.get(request.getId()));
-                    itemRequestDtos.add(requestDto);
-                }
-        );
+        if (itemRequests.isEmpty()) return new ArrayList<>();
+        List<Integer> requestIds = new ArrayList<>(itemRequests.size());
+        itemRequests.forEach(request -> requestIds.add(request.getId()));
+        Map<Integer, List<ItemRequestDto>> requestMapWithAnswer = itemRepository.getRequestAnswers(requestIds)
+                .stream()
+                .collect(Collectors.groupingBy(ItemRequestDto::getRequestId,
+                        () -> new HashMap<>(mapCapacity(requestIds.size())),
+                        Collectors.toCollection(ArrayList::new)));
+        List<RequestDto> itemRequestDtos = new ArrayList<>(itemRequests.size());
+        itemRequests.forEach(request -> itemRequestDtos.add(RequestMapper
+                .toRequestDtoWithAnswers(request, requestMapWithAnswer.get(request.getId()))));
         return itemRequestDtos;
     }
+
+    //Емкость HashMap, при которой expectedSize ключей помещаются без перехеширования
+    private static int mapCapacity(int expectedSize) {
+        return (int) (expectedSize / 0.75f) + 1;
+    }
 }
@@ -0,0 +1,62 @@
+package ru.practicum.shareit.stream;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+//Чтение больших выборок порциями: строки JPA Stream собираются в порцию фиксированного размера,
+//порция обрабатывается целиком (связанные данные догружаются для нее одним IN-запросом),
+//после чего контекст персистентности очищается. В памяти одновременно не больше одной порции
+@Component
+public class ChunkedReader {
+    public static final int CHUNK_SIZE = 500;
+    //Для @QueryHints нужна строковая константа; совпадает с размером порции
+    public static final String FETCH_SIZE = "" + CHUNK_SIZE;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public ChunkedReader(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    //Проверки в сервисе выполняются до вызова read, а сама выборка - позже, при записи ответа
+    //и уже в другом потоке, поэтому транзакцию для курсора открываю здесь
+    public <T, R> ChunkedResult<R> read(Supplier<Stream<T>> query, Function<List<T>, Collection<R>> mapper) {
+        return action -> transactionTemplate.executeWithoutResult(status ->
+                forEachChunk(query.get(), chunk -> mapper.apply(chunk).forEach(action)));
+    }
+
+    private <T> void forEachChunk(Stream<T> stream, Consumer<List<T>> action) {
+        try (stream) {
+            Iterator<T> iterator = stream.iterator();
+            List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == CHUNK_SIZE) {
+                    process(chunk, action);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) process(chunk, action);
+        }
+    }
+
+    private <T> void process(List<T> chunk, Consumer<List<T>> action) {
+        action.accept(chunk);
+        entityManager.clear();
+    }
+}
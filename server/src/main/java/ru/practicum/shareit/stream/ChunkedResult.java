@@ -0,0 +1,9 @@
+package ru.practicum.shareit.stream;
+
+import java.util.function.Consumer;
+
+//Отложенная выборка: запрос к бд выполняется только при вызове forEach, элементы передаются по одному
+@FunctionalInterface
+public interface ChunkedResult<T> {
+    void forEach(Consumer<? super T> action);
+}
@@ -0,0 +1,52 @@
+package ru.practicum.shareit.stream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+//Потоковая выдача списков в формате NDJSON: по одному JSON-объекту на строку.
+//Элементы сериализуются по мере чтения из бд, поэтому весь список в памяти не собирается.
+//Контроллеры отдают этот режим клиентам с Accept: application/x-ndjson; пагинация в нем не используется
+@Component
+@RequiredArgsConstructor
+public class NdjsonStreamer {
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+    //Через сколько элементов накопленный буфер отправляется клиенту очередным чанком
+    private static final int FLUSH_INTERVAL = 100;
+
+    private final ObjectMapper objectMapper;
+
+    //Выборка читается уже при записи ответа, в потоке асинхронной обработки запроса. Ошибки проверок
+    //должны возникать раньше, при получении source: после начала записи статус ответа уже не изменить
+    public <T> ResponseEntity<StreamingResponseBody> stream(ChunkedResult<T> source) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                int[] written = {0};
+                source.forEach(value -> {
+                    try {
+                        writer.writeValue(generator, value);
+                        generator.writeRaw('\n');
+                        if (++written[0] % FLUSH_INTERVAL == 0) generator.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+}
@@ -1,7 +1,10 @@
 package ru.practicum.shareit.user;
 
 import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.stream.NdjsonStreamer;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
@@ -14,6 +17,7 @@ import java.util.Collection;
 public class UserController {
 
     private final UserService userService;
+    private final NdjsonStreamer ndjsonStreamer;
 
     @PostMapping
     public User createUser(@RequestBody UserDto userDto) {
@@ -36,6 +40,11 @@ public class UserController {
         return userService.getAllUsers();
     }
 
+    @GetMapping(produces = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        return ndjsonStreamer.stream(userService.streamAllUsers());
+    }
+
     @DeleteMapping("/{userId}")
     void deleteUserById(@PathVariable Integer userId) {
         userService.deleteUserById(userId);
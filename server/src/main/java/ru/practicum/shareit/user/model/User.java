@@ -16,8 +16,11 @@ import java.util.Objects;
 @Entity
 @Table(name = "users", schema = "public")
 public class User {
+    //Id выдаются блоками из последовательности (V5__add_id_sequences.sql): без обращения к БД на каждую вставку
+    //и без IDENTITY, при котором Hibernate не объединяет вставки в пакеты
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Integer id;
     private String name;
     private String email;
@@ -0,0 +1,10 @@
+package ru.practicum.shareit.user.model;
+
+//Неизменяемый снимок пользователя для кэша users: общий для всех потоков, поэтому без сеттеров
+public interface UserView {
+    Integer getId();
+
+    String getName();
+
+    String getEmail();
+}
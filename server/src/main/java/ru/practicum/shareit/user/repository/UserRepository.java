@@ -1,29 +1,68 @@
 package ru.practicum.shareit.user.repository;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.stream.ChunkedReader;
 import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.model.UserView;
+
+import javax.persistence.QueryHint;
 
 import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
 
     @Transactional
     @Modifying
+    @CacheEvict(cacheNames = "users", key = "#p1")
     @Query("update User u set u.name = ?1 where u.id = ?2")
     void updateUserName(String name, Integer id);
 
     @Transactional
     @Modifying
+    @CacheEvict(cacheNames = "users", key = "#p1")
     @Query("update User u set u.email = ?1 where u.id = ?2")
     void updateUserEmail(String email, Integer id);
 
+    //В кэше лежит неизменяемый снимок, а не управляемая сущность: ее изменение вызывающим кодом
+    //попало бы в кэш. Отсутствующий пользователь не кэшируется
+    @Cacheable(cacheNames = "users", unless = "#result == null")
+    @Query("select u.id as id, u.name as name, u.email as email from User u where u.id = ?1")
+    Optional<UserView> findViewById(Integer id);
+
     @Query("select distinct u from User u where u.id in :currentIds")
     Collection<User> findByUserIds(@Param("currentIds") Collection<Integer> userIds);
 
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = ChunkedReader.FETCH_SIZE))
+    @Query("select u from User u order by u.id")
+    Stream<User> streamAll();
+
+    //Проверка по первичному ключу без загрузки сущности. В кэше храню только существующие id,
+    //чтобы только что созданный пользователь не считался отсутствующим
+    @Override
+    @Cacheable(cacheNames = "userExistence", unless = "!#result")
+    boolean existsById(Integer id);
+
+    @Override
+    @CacheEvict(cacheNames = "users", key = "#p0.id", condition = "#p0.id != null")
+    <S extends User> S save(S user);
+
+    @Override
+    @CacheEvict(cacheNames = {"userExistence", "users"})
+    void deleteById(Integer id);
+
+    @Override
+    @CacheEvict(cacheNames = {"userExistence", "users"}, allEntries = true)
+    void deleteAll();
+
 }
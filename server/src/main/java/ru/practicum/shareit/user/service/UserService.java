@@ -1,5 +1,6 @@
 package ru.practicum.shareit.user.service;
 
+import ru.practicum.shareit.stream.ChunkedResult;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
 
@@ -14,6 +15,8 @@ public interface UserService {
 
     Collection<User> getAllUsers();
 
+    ChunkedResult<User> streamAllUsers();
+
     void deleteUserById(Integer userId);
 
     void deleteAllUser();
@@ -2,65 +2,89 @@ package ru.practicum.shareit.user.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import ru.practicum.shareit.booking.repository.BookingRepository;
 import ru.practicum.shareit.exception.RequestError;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.stream.ChunkedReader;
+import ru.practicum.shareit.stream.ChunkedResult;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.model.UserView;
 import ru.practicum.shareit.user.repository.UserRepository;
 
 import java.util.Collection;
-import java.util.stream.Collectors;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
-    private Integer id = 1;
+    private final ItemRepository itemRepository;
+    private final BookingRepository bookingRepository;
+    private final ChunkedReader chunkedReader;
 
+    //Id назначает Hibernate из последовательности в БД; id из запроса не используется,
+    //иначе save обновил бы существующего пользователя вместо создания нового
     @Override
     public User createUser(UserDto userDto) {
-        userDto.setId(id);
-        log.info("Создан новый пользователь с id = {}", id);
-        id++;
-        return userRepository.save(UserMapper.toUser(userDto));
+        User user = UserMapper.toUser(userDto);
+        user.setId(null);
+        User saved = userRepository.save(user);
+        log.info("Создан новый пользователь с id = {}", saved.getId());
+        return saved;
     }
 
     @Override
     public User updateUser(UserDto userDto) {
         User user = UserMapper.toUser(userDto);
-        if (checkContainsIdInUserMap(user.getId())) {
+        if (checkUserExists(user.getId())) {
             if (userDto.getEmail() == null) {
                 log.info("Обновлено имя для пользователя с id = {}", user.getId());
                 userRepository.updateUserName(user.getName(), user.getId());
-                User updateUser = getUserById(user.getId());
-                updateUser.setName(user.getName());
-                return updateUser;
+                touchUserViews(user.getId());
+                user.setEmail(getUserById(user.getId()).getEmail());
+                return user;
             }
             if (userDto.getName() == null) {
                 log.info("Пользователь с id = {} обновил email на {}", user.getId(), user.getEmail());
                 userRepository.updateUserEmail(user.getEmail(), user.getId());
-                User updateUser = getUserById(user.getId());
-                updateUser.setEmail(user.getEmail());
-                return updateUser;
+                touchUserViews(user.getId());
+                user.setName(getUserById(user.getId()).getName());
+                return user;
             }
             log.info("Обновлена информация о пользователе с id = {}", user.getId());
-            return userRepository.save(UserMapper.toUser(userDto));
+            User saved = userRepository.save(UserMapper.toUser(userDto));
+            touchUserViews(user.getId());
+            return saved;
         }
         log.warn("Ошибка при обновлении пользователя. Пользователь с таким id не найден");
         throw new RequestError(HttpStatus.BAD_REQUEST, "Пользователь с ID = " + userDto.getId() + " не найден");
     }
 
+    //Имя пользователя выводится в отзывах к вещам и в его арендах: меняются их версии, а с ними и ETag
+    private void touchUserViews(Integer userId) {
+        itemRepository.incrementVersionsForUser(userId);
+        bookingRepository.incrementVersionsForBooker(userId);
+    }
+
+    //Снимок берется из кэша users в UserRepository, кэш сбрасывается там же при любом изменении пользователя.
+    //Каждый вызов получает свою копию, поэтому ее изменение не затрагивает кэш и других вызывающих
     @Override
     public User getUserById(Integer userId) {
-        log.info("Запрошен пользователь с id = {}", userId);
-        User user = userRepository.findById(userId).orElse(null);
-        if (user == null) {
+        log.debug("Запрошен пользователь с id = {}", userId);
+        UserView view = userRepository.findViewById(userId).orElse(null);
+        if (view == null) {
             log.warn("Ошибка при получении пользователя. Пользователь с таким id не найден");
             throw new RequestError(HttpStatus.NOT_FOUND, "Пользователь с id " + userId + " не найден");
         }
+        User user = new User();
+        user.setId(view.getId());
+        user.setName(view.getName());
+        user.setEmail(view.getEmail());
         return user;
     }
 
@@ -70,14 +94,27 @@ public class UserServiceImpl implements UserService {
         return userRepository.findAll();
     }
 
+    //Потоковый вывод: пользователи читаются курсором порциями при записи ответа
+    @Override
+    public ChunkedResult<User> streamAllUsers() {
+        log.info("Запрошен потоковый вывод списка пользователей");
+        return chunkedReader.read(userRepository::streamAll, users -> users);
+    }
+
     @Override
     public void deleteUserById(Integer userId) {
-        if (!checkContainsIdInUserMap(userId)) {
+        if (!checkUserExists(userId)) {
             log.warn("Ошибка при удалении пользователя. Пользователь с таким id не найден");
             throw new RequestError(HttpStatus.BAD_REQUEST, "Пользователь с id " + userId + " не найден");
         }
+        //Кэш существования мог устареть, если строку удалили в обход сервиса
+        try {
+            userRepository.deleteById(userId);
+        } catch (EmptyResultDataAccessException e) {
+            log.warn("Ошибка при удалении пользователя. Пользователь с id {} уже удален", userId);
+            throw new RequestError(HttpStatus.BAD_REQUEST, "Пользователь с id " + userId + " не найден");
+        }
         log.info("Пользователь с id = {} удален", userId);
-        userRepository.deleteById(userId);
     }
 
     @Override
@@ -85,8 +122,7 @@ public class UserServiceImpl implements UserService {
         userRepository.deleteAll();
     }
 
-    private boolean checkContainsIdInUserMap(Integer id) {
-        return userRepository.findAll().stream()
-                .collect(Collectors.toMap(User::getId, user1 -> user1)).containsKey(id);
+    private boolean checkUserExists(Integer id) {
+        return id != null && userRepository.existsById(id);
     }
 }
@@ -1,6 +1,4 @@
-DROP TABLE IF EXISTS USERS, REQUESTS, ITEMS, BOOKINGS, COMMENTS;
-
-CREATE TABLE USERS
+CREATE TABLE IF NOT EXISTS USERS
 (
     id    BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
     name  VARCHAR(255)                            NOT NULL,
@@ -9,7 +7,7 @@ CREATE TABLE USERS
     CONSTRAINT UQ_USER_EMAIL UNIQUE (email)
 );
 
-CREATE TABLE REQUESTS
+CREATE TABLE IF NOT EXISTS REQUESTS
 (
     id          BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
     description TEXT,
@@ -18,7 +16,7 @@ CREATE TABLE REQUESTS
     CONSTRAINT pk_req PRIMARY KEY (id)
 );
 
-CREATE TABLE ITEMS
+CREATE TABLE IF NOT EXISTS ITEMS
 (
     id           BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
     name         VARCHAR(255)                            NOT NULL,
@@ -29,7 +27,7 @@ CREATE TABLE ITEMS
     CONSTRAINT pk_items PRIMARY KEY (id)
 );
 
-CREATE TABLE BOOKINGS
+CREATE TABLE IF NOT EXISTS BOOKINGS
 (
     id         BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
     start_date TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
@@ -40,7 +38,7 @@ CREATE TABLE BOOKINGS
     CONSTRAINT pk_bookings PRIMARY KEY (id)
 );
 
-CREATE TABLE COMMENTS
+CREATE TABLE IF NOT EXISTS COMMENTS
 (
     id        BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
     text      TEXT                                    NOT NULL,
@@ -48,4 +46,4 @@ CREATE TABLE COMMENTS
     author_id BIGINT REFERENCES USERS (id),
     created   TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
     CONSTRAINT pk_comments PRIMARY KEY (id)
-);
\ No newline at end of file
+);
@@ -0,0 +1,26 @@
+-- Аренды пользователя: getBookingsByBookerIdOrderByStartDesc и вывод по курсору (start desc, id desc)
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_BOOKER_START ON BOOKINGS (booker_id, start_date DESC, id DESC);
+
+-- Аренды пользователя с фильтром по статусу (WAITING, REJECTED)
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_BOOKER_STATUS_START ON BOOKINGS (booker_id, status, start_date DESC);
+
+-- Завершенные аренды пользователя (PAST)
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_BOOKER_END ON BOOKINGS (booker_id, end_date);
+
+-- История аренд вещи и соединение аренд с вещами владельца
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_ITEM_START ON BOOKINGS (item_id, start_date);
+
+-- Проверка, что пользователь брал вещь в аренду, перед добавлением комментария
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_BOOKER_ITEM_END ON BOOKINGS (booker_id, item_id, end_date);
+
+-- Вещи владельца
+CREATE INDEX IF NOT EXISTS IDX_ITEMS_OWNER ON ITEMS (owner_id, id);
+
+-- Ответы на запросы вещей
+CREATE INDEX IF NOT EXISTS IDX_ITEMS_REQUEST ON ITEMS (request_id);
+
+-- Комментарии к вещи
+CREATE INDEX IF NOT EXISTS IDX_COMMENTS_ITEM ON COMMENTS (item_id);
+
+-- Запросы пользователя, отсортированные по дате создания
+CREATE INDEX IF NOT EXISTS IDX_REQUESTS_REQUESTER_CREATED ON REQUESTS (requester, created DESC);
@@ -0,0 +1,4 @@
+-- Версии карточек вещи и бронирования для ETag: растут при каждом изменении того, что видно в ответе
+ALTER TABLE ITEMS ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+ALTER TABLE BOOKINGS ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
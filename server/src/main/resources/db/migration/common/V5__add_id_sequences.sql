@@ -0,0 +1,5 @@
+-- Id пользователей и вещей выдаются из последовательностей блоками по 50 (оптимизатор pooled-lo в Hibernate):
+-- значение последовательности - первый id блока. Экземпляры сервера получают разные блоки и не пересекаются
+CREATE SEQUENCE IF NOT EXISTS USERS_SEQ START WITH 1 INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS ITEMS_SEQ START WITH 1 INCREMENT BY 50;
@@ -0,0 +1,10 @@
+-- Списки аренд по состоянию строятся одним запросом (BookingSeekRepositoryImpl): каждое состояние -
+-- условие на диапазон по (booker_id | item_id вещей владельца, status, start_date, end_date),
+-- а порядок всегда start_date DESC, id DESC. Индексы ниже отдают строки уже в этом порядке, без сортировки
+
+-- Аренды пользователя с фильтром по статусу (WAITING, REJECTED): id добавлен для порядка и курсора
+DROP INDEX IF EXISTS IDX_BOOKINGS_BOOKER_STATUS_START;
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_BOOKER_STATUS_START ON BOOKINGS (booker_id, status, start_date DESC, id DESC);
+
+-- Аренды вещей владельца с фильтром по статусу (WAITING, REJECTED)
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_ITEM_STATUS_START ON BOOKINGS (item_id, status, start_date DESC, id DESC);
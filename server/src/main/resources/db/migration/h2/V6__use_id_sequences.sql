@@ -0,0 +1,7 @@
+-- Вставки в обход Hibernate тоже берут id из последовательности, а не из отдельного IDENTITY-счетчика.
+-- H2 используется только с пустой базой в памяти, поэтому сдвигать начало последовательностей не нужно
+ALTER TABLE USERS ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE USERS ALTER COLUMN id SET DEFAULT NEXT VALUE FOR USERS_SEQ;
+
+ALTER TABLE ITEMS ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE ITEMS ALTER COLUMN id SET DEFAULT NEXT VALUE FOR ITEMS_SEQ;
@@ -0,0 +1,6 @@
+-- Полнотекстовый поиск по вещам: название весит больше описания
+ALTER TABLE ITEMS ADD COLUMN IF NOT EXISTS search_vector TSVECTOR
+    GENERATED ALWAYS AS (setweight(to_tsvector('simple', coalesce(name, '')), 'A') ||
+                         setweight(to_tsvector('simple', coalesce(description, '')), 'B')) STORED;
+
+CREATE INDEX IF NOT EXISTS IDX_ITEMS_SEARCH_VECTOR ON ITEMS USING GIN (search_vector);
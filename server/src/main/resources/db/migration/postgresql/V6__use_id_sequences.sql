@@ -0,0 +1,11 @@
+-- Вставки в обход Hibernate тоже берут id из последовательности, а не из отдельного IDENTITY-счетчика.
+-- Каждая такая вставка расходует целый блок, зато не пересекается с блоками, выданными серверу
+ALTER TABLE USERS ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE USERS ALTER COLUMN id SET DEFAULT nextval('users_seq');
+
+ALTER TABLE ITEMS ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE ITEMS ALTER COLUMN id SET DEFAULT nextval('items_seq');
+
+-- Последовательности начинаются после уже выданных id
+SELECT setval('users_seq', (SELECT coalesce(max(id), 0) + 1 FROM USERS), false);
+SELECT setval('items_seq', (SELECT coalesce(max(id), 0) + 1 FROM ITEMS), false);
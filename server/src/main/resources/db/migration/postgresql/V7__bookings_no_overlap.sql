@@ -0,0 +1,9 @@
+-- Подтвержденные аренды одной вещи не пересекаются. Проверка в приложении не видит незафиксированных
+-- подтверждений из соседних транзакций, ограничение исключения срабатывает и в этом случае.
+-- Перед миграцией пересекающиеся подтвержденные аренды, если они есть, нужно отклонить вручную
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+ALTER TABLE BOOKINGS
+    ADD CONSTRAINT BOOKINGS_APPROVED_NO_OVERLAP
+        EXCLUDE USING gist (item_id WITH =, tsrange(start_date, end_date) WITH &&)
+        WHERE (status = 'APPROVED');
@@ -0,0 +1,133 @@
+package ru.practicum.shareit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.exception.RequestError;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Потоки одновременно подтверждают пересекающиеся аренды одной вещи.
+//Подтвержденные аренды не должны пересекаться, а каждая неподтвержденная - пересекаться с подтвержденной
+@Slf4j
+class BookingAdmissionIntegrationTest extends IntegrationTestBase {
+    private static final int THREADS = 8;
+    private static final int BOOKINGS = 300;
+    private static final int PERIOD_HOURS = 240;
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private UserService userService;
+
+    @Test
+    public void concurrentApprovalsNeverOverlap() throws Exception {
+        User owner = userService.createUser(createUserDto("owner"));
+        Item item = itemService.createItem(owner.getId(), createItemDto());
+        User booker = userService.createUser(createUserDto("booker"));
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.HOURS);
+        Queue<Integer> waiting = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < BOOKINGS; i++) {
+            Booking booking = new Booking();
+            booking.setItemId(item.getId());
+            booking.setBookerId(booker.getId());
+            booking.setStart(base.plusHours(random.nextInt(PERIOD_HOURS)));
+            booking.setEnd(booking.getStart().plusHours(1 + random.nextInt(24)));
+            waiting.add(bookingService.createBooking(booking).getId());
+        }
+
+        AtomicInteger approved = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        long started;
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    Integer bookingId;
+                    while ((bookingId = waiting.poll()) != null) {
+                        try {
+                            bookingService.replyToBooking(owner.getId(), bookingId, true);
+                            approved.incrementAndGet();
+                        } catch (RequestError e) {
+                            assertEquals(HttpStatus.CONFLICT, e.getStatus());
+                            conflicts.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            started = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        log.info("Потоков: {}, аренд: {}, подтверждено: {}, отказов: {}, ответов/с: {}", THREADS, BOOKINGS,
+                approved.get(), conflicts.get(), String.format("%.0f", BOOKINGS / seconds));
+
+        assertEquals(BOOKINGS, approved.get() + conflicts.get());
+        assertTrue(approved.get() > 0, "Ни одна аренда не подтверждена");
+        assertEquals(0, countApprovedOverlaps(), "Подтвержденные аренды пересекаются");
+        assertEquals(approved.get(), JdbcTestUtils.countRowsInTableWhere(jdbcTemplate, "bookings",
+                "status = '" + Status.APPROVED + "'"));
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from bookings w where w.status = 'WAITING' " +
+                "and not exists (select 1 from bookings a where a.item_id = w.item_id and a.status = 'APPROVED' " +
+                "and a.start_date < w.end_date and a.end_date > w.start_date)", Integer.class),
+                "Отклонена аренда, которая ни с чем не пересекается");
+    }
+
+    private int countApprovedOverlaps() {
+        return jdbcTemplate.queryForObject("select count(*) from bookings a join bookings b " +
+                "on a.item_id = b.item_id and a.id < b.id where a.status = 'APPROVED' and b.status = 'APPROVED' " +
+                "and a.start_date < b.end_date and a.end_date > b.start_date", Integer.class);
+    }
+
+    private UserDto createUserDto(String name) {
+        UserDto userDto = new UserDto();
+        userDto.setName(name);
+        userDto.setEmail(name + "@mail.ru");
+        return userDto;
+    }
+
+    private ItemDto createItemDto() {
+        ItemDto itemDto = new ItemDto();
+        itemDto.setAvailable(true);
+        itemDto.setName("name");
+        itemDto.setDescription("desc");
+        return itemDto;
+    }
+}
@@ -1,14 +1,12 @@
 package ru.practicum.shareit;
 
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.data.domain.Slice;
+import ru.practicum.shareit.booking.dto.BookingCursor;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingState;
@@ -25,16 +23,18 @@ import ru.practicum.shareit.user.service.UserService;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
-@SpringBootTest
-public class BookingServiceIntegrationTest {
-    @Autowired
-    private JdbcTemplate jdbcTemplate;
+public class BookingServiceIntegrationTest extends IntegrationTestBase {
     @Autowired
     private BookingService bookingService;
     @Autowired
@@ -44,11 +44,6 @@ public class BookingServiceIntegrationTest {
     @Autowired
     private BookingRepository bookingRepository;
 
-    @AfterEach
-    void tearDown() {
-        JdbcTestUtils.deleteFromTables(jdbcTemplate, "bookings", "comments", "items", "users");
-    }
-
     @Test
     public void testCreateBooking() {
         User owner = userService.createUser(createUserDto("игорь", "mail@mail.ru"));
@@ -111,6 +106,40 @@ public class BookingServiceIntegrationTest {
                 );
     }
 
+    @Test
+    public void bookingEtagChangesWithBookingView() {
+        User owner = userService.createUser(createUserDto("игорь", "mail@mail.ru"));
+        Item item = itemService.createItem(owner.getId(), createItemDto(owner));
+        User user = userService.createUser(createUserDto("иван", "yand@yandex.ru"));
+        BookingDto bookingDto = bookingService.createBooking(createBooking(item, user));
+        String etag = bookingService.getBookingEtag(bookingDto.getId(), user.getId());
+
+        assertEquals(etag, bookingService.getBookingEtag(bookingDto.getId(), owner.getId()),
+                "ETag аренды отличается у владельца и арендатора");
+        bookingService.replyToBooking(owner.getId(), bookingDto.getId(), true);
+        String approved = bookingService.getBookingEtag(bookingDto.getId(), user.getId());
+        assertNotEquals(etag, approved, "Подтверждение аренды не изменило ETag");
+        assertEquals(approved, bookingService.getBookingEtag(bookingDto.getId(), user.getId()),
+                "ETag изменился без изменений");
+
+        UserDto rename = new UserDto();
+        rename.setId(user.getId());
+        rename.setName("арендатор");
+        userService.updateUser(rename);
+        String renamed = bookingService.getBookingEtag(bookingDto.getId(), user.getId());
+        assertNotEquals(approved, renamed, "Переименование арендатора не изменило ETag аренды");
+
+        ItemDto update = new ItemDto();
+        update.setName("новое название");
+        itemService.updateItem(item.getId(), owner.getId(), update);
+        assertNotEquals(renamed, bookingService.getBookingEtag(bookingDto.getId(), user.getId()),
+                "Изменение вещи не изменило ETag аренды");
+
+        RequestError er = Assertions.assertThrows(RequestError.class,
+                () -> bookingService.getBookingEtag(bookingDto.getId(), 100));
+        assertEquals(HttpStatus.NOT_FOUND, er.getStatus());
+    }
+
     @Test
     public void getBookingByIdForOwnerOrBooker() {
         User owner = userService.createUser(createUserDto("игорь", "mail@mail.ru"));
@@ -143,6 +172,55 @@ public class BookingServiceIntegrationTest {
         assertEquals(bookings.size(), 1, "Неверно получен список");
     }
 
+    @Test
+    public void streamAllBookingsInSameOrderAsList() {
+        User owner = userService.createUser(createUserDto("игорь", "mail@mail.ru"));
+        Item item = itemService.createItem(owner.getId(), createItemDto(owner));
+        User user = userService.createUser(createUserDto("иван", "yand@yandex.ru"));
+        for (int i = 1; i <= 3; i++) {
+            Booking booking = createBooking(item, user);
+            booking.setStart(LocalDateTime.now().plusDays(i * 2));
+            booking.setEnd(LocalDateTime.now().plusDays(i * 2 + 1));
+            bookingService.createBooking(booking);
+        }
+        List<BookingDto> forUser = new ArrayList<>();
+        List<BookingDto> forOwner = new ArrayList<>();
+
+        bookingService.streamAllBookingsForUser(BookingState.ALL, user.getId()).forEach(forUser::add);
+        bookingService.streamAllBookingForOwner(BookingState.FUTURE, owner.getId()).forEach(forOwner::add);
+
+        assertEquals(getIds(bookingService.getAllBookingsForUser(BookingState.ALL, user.getId())), getIds(forUser),
+                "Потоковый вывод отличается от списка");
+        assertEquals(getIds(bookingService.getAllBookingForOwner(BookingState.FUTURE, owner.getId())),
+                getIds(forOwner), "Потоковый вывод отличается от списка");
+        assertEquals(3, forUser.size(), "Неверно получен список");
+        assertEquals(item.getId(), forOwner.get(0).getItem().getId(), "Не загружена вещь аренды");
+    }
+
+    @Test
+    public void pastCurrentAndFutureSplitAllBookings() {
+        User owner = userService.createUser(createUserDto("игорь", "mail@mail.ru"));
+        Item item = itemService.createItem(owner.getId(), createItemDto(owner));
+        User user = userService.createUser(createUserDto("иван", "yand@yandex.ru"));
+        for (int i = -3; i <= 3; i++) {
+            Booking booking = createBooking(item, user);
+            booking.setStart(LocalDateTime.now().plusDays(i * 2L));
+            booking.setEnd(LocalDateTime.now().plusDays(i * 2L + 1));
+            bookingRepository.save(booking);
+        }
+        List<Integer> split = new ArrayList<>();
+        for (BookingState state : List.of(BookingState.PAST, BookingState.CURRENT, BookingState.FUTURE)) {
+            split.addAll(getIds(bookingService.getAllBookingForOwner(state, owner.getId())));
+        }
+
+        List<Integer> all = getIds(bookingService.getAllBookingsForUser(BookingState.ALL, user.getId()));
+        assertEquals(7, all.size(), "Неверно получен список");
+        assertEquals(new HashSet<>(all), new HashSet<>(split), "Аренда не попала ни в одно состояние");
+        assertEquals(all.size(), split.size(), "Аренда попала в несколько состояний");
+        assertEquals(getIds(bookingService.getAllBookingsForUserWithPagination(BookingState.ALL, user.getId(), 2, 2)),
+                all.subList(2, 4), "Страница отличается от списка");
+    }
+
     @Test
     public void getAllBookingsForUserStateFuture() {
         User owner = userService.createUser(createUserDto("игорь", "mail@mail.ru"));
@@ -497,6 +575,145 @@ public class BookingServiceIntegrationTest {
         assertEquals(bookings.size(), 1, "Неверно получен список");
     }
 
+    @Test
+    public void getAllBookingForOwnerUsesConstantNumberOfQueries() {
+        User owner = userService.createUser(createUserDto("игорь", "mail@mail.ru"));
+        createBookingsForOwner(owner, 2, "a");
+        QueryCount<Collection<BookingDto>> fewBookings = countQueries(
+                () -> bookingService.getAllBookingForOwner(BookingState.ALL, owner.getId()));
+
+        createBookingsForOwner(owner, 8, "b");
+        QueryCount<Collection<BookingDto>> manyBookings = countQueries(
+                () -> bookingService.getAllBookingForOwner(BookingState.ALL, owner.getId()));
+
+        assertEquals(2, fewBookings.getResult().size(), "Неверно получен список");
+        assertEquals(10, manyBookings.getResult().size(), "Неверно получен список");
+        assertEquals(fewBookings.getStatements(), manyBookings.getStatements(),
+                "Число запросов к бд зависит от количества аренд");
+        manyBookings.getResult().forEach(bookingDto -> {
+            assertEquals(owner.getId(), bookingDto.getItem().getOwnerId(), "Неверно подставлена вещь");
+            assertEquals(bookingDto.getBooker().getName(), "booker" + bookingDto.getItem().getName(),
+                    "Неверно подставлен арендатор");
+        });
+    }
+
+    @Test
+    public void getBookingsForOwnerByCursorWithoutCountQuery() {
+        User owner = userService.createUser(createUserDto("игорь", "mail@mail.ru"));
+        createBookingsForOwner(owner, 5, "c");
+
+        List<Integer> ids = new ArrayList<>();
+        QueryCount<Integer> pages = countQueries(() -> {
+            String cursor = "";
+            int count = 0;
+            while (cursor != null) {
+                Slice<BookingDto> page = bookingService.getBookingsForOwnerByCursor(BookingState.ALL, owner.getId(),
+                        cursor, 2);
+                page.forEach(bookingDto -> ids.add(bookingDto.getId()));
+                cursor = page.hasNext() ? BookingCursor.of(page.getContent().get(1)).encode() : null;
+                count++;
+            }
+            return count;
+        });
+
+        List<Integer> expectedIds = new ArrayList<>();
+        bookingService.getAllBookingForOwner(BookingState.ALL, owner.getId())
+                .forEach(bookingDto -> expectedIds.add(bookingDto.getId()));
+        assertEquals(3, pages.getResult(), "Неверное количество страниц");
+        assertEquals(expectedIds, ids, "Неверный порядок аренд при выводе по курсору");
+        for (String query : pages.getQueries()) {
+            Assertions.assertFalse(query.contains("count("), "Выполнен запрос count: " + query);
+        }
+    }
+
+    @Test
+    public void get400BadRequestForIncorrectPageSize() {
+        User user = userService.createUser(createUserDto("иван", "yand@yandex.ru"));
+        List<Executable> requests = List.of(
+                () -> bookingService.getBookingsForUserByCursor(BookingState.ALL, user.getId(), "", 0),
+                () -> bookingService.getBookingsForOwnerByCursor(BookingState.ALL, user.getId(), "", -1),
+                () -> bookingService.getAllBookingsForUserWithPagination(BookingState.ALL, user.getId(), 0, 0),
+                () -> bookingService.getAllBookingForOwnerWithPagination(BookingState.ALL, user.getId(), -1, 2),
+                () -> bookingService.getAllBookingsForUserWithPagination(BookingState.ALL, user.getId(), 0, null),
+                () -> bookingService.getAllBookingForOwnerWithPagination(BookingState.ALL, user.getId(), null, 2));
+        for (Executable request : requests) {
+            RequestError er = Assertions.assertThrows(RequestError.class, request);
+            assertEquals(HttpStatus.BAD_REQUEST, er.getStatus());
+        }
+    }
+
+    @Test
+    public void get400BadRequestForIncorrectCursor() {
+        User user = userService.createUser(createUserDto("иван", "yand@yandex.ru"));
+        RequestError er = Assertions.assertThrows(
+                RequestError.class,
+                () -> bookingService.getBookingsForUserByCursor(BookingState.ALL, user.getId(), "###", 2)
+        );
+        assertEquals(HttpStatus.BAD_REQUEST, er.getStatus());
+    }
+
+    @Test
+    public void bookingWorkflowStatementCount() {
+        User owner = userService.createUser(createUserDto("игорь", "mail@mail.ru"));
+        Item item = itemService.createItem(owner.getId(), createItemDto(owner));
+        User user = userService.createUser(createUserDto("иван", "yand@yandex.ru"));
+
+        QueryCount<BookingDto> created = countQueries(() -> bookingService.createBooking(createBooking(item, user)));
+        assertEquals(3, created.getStatements(), "Создание: пользователь, вещь и insert");
+        BookingDto bookingDto = created.getResult();
+
+        QueryCount<BookingDto> viewed = countQueries(
+                () -> bookingService.getBookingByIdForOwnerOrBooker(bookingDto.getId(), user.getId()));
+        assertEquals(1, viewed.getStatements(), "Просмотр: одно чтение");
+
+        QueryCount<BookingDto> approved = countQueries(
+                () -> bookingService.replyToBooking(owner.getId(), bookingDto.getId(), true));
+        assertEquals(2, approved.getStatements(), "Подтверждение: одно чтение и одна запись");
+        assertEquals(Status.APPROVED, approved.getResult().getStatus());
+        assertEquals(Status.APPROVED, bookingService.getBookingById(bookingDto.getId()).getStatus());
+    }
+
+    @Test
+    public void get409ConflictCreateBookingOverlappingApproved() {
+        User owner = userService.createUser(createUserDto("игорь", "mail@mail.ru"));
+        Item item = itemService.createItem(owner.getId(), createItemDto(owner));
+        User user = userService.createUser(createUserDto("иван", "yand@yandex.ru"));
+        BookingDto bookingDto = bookingService.createBooking(createBooking(item, user));
+        bookingService.replyToBooking(owner.getId(), bookingDto.getId(), true);
+
+        Booking overlapping = createBooking(item, user);
+        overlapping.setStart(bookingDto.getEnd().minusMinutes(1));
+        overlapping.setEnd(bookingDto.getEnd().plusMinutes(30));
+        RequestError er = Assertions.assertThrows(RequestError.class,
+                () -> bookingService.createBooking(overlapping));
+        assertEquals(HttpStatus.CONFLICT, er.getStatus());
+
+        Booking adjacent = createBooking(item, user);
+        adjacent.setStart(bookingDto.getEnd());
+        adjacent.setEnd(bookingDto.getEnd().plusMinutes(30));
+        assertEquals(Status.WAITING, bookingService.createBooking(adjacent).getStatus());
+    }
+
+    @Test
+    public void get409ConflictApproveOverlappingBooking() {
+        User owner = userService.createUser(createUserDto("игорь", "mail@mail.ru"));
+        Item item = itemService.createItem(owner.getId(), createItemDto(owner));
+        User user = userService.createUser(createUserDto("иван", "yand@yandex.ru"));
+        BookingDto first = bookingService.createBooking(createBooking(item, user));
+        BookingDto second = bookingService.createBooking(createBooking(item, user));
+        bookingService.replyToBooking(owner.getId(), first.getId(), true);
+
+        RequestError er = Assertions.assertThrows(RequestError.class,
+                () -> bookingService.replyToBooking(owner.getId(), second.getId(), true));
+        assertEquals(HttpStatus.CONFLICT, er.getStatus());
+        assertEquals(Status.WAITING, bookingService.getBookingById(second.getId()).getStatus());
+        assertEquals(Status.REJECTED, bookingService.replyToBooking(owner.getId(), second.getId(), false).getStatus());
+
+        er = Assertions.assertThrows(RequestError.class,
+                () -> bookingService.replyToBooking(owner.getId(), first.getId(), true));
+        assertEquals(HttpStatus.BAD_REQUEST, er.getStatus());
+    }
+
     @Test
     public void get400BadRequestIncorrectData() {
         RequestError er = Assertions.assertThrows(
@@ -557,6 +774,10 @@ public class BookingServiceIntegrationTest {
         assertEquals(HttpStatus.NOT_FOUND, er.getStatus());
     }
 
+    private List<Integer> getIds(Collection<BookingDto> bookings) {
+        return bookings.stream().map(BookingDto::getId).collect(Collectors.toList());
+    }
+
     private Executable getErrorForIncorrectDataBooking() {
         return () -> {
             User owner = userService.createUser(createUserDto("игорь", "mail@mail.ru"));
@@ -636,6 +857,17 @@ public class BookingServiceIntegrationTest {
         };
     }
 
+    private void createBookingsForOwner(User owner, int count, String prefix) {
+        for (int i = 0; i < count; i++) {
+            ItemDto itemDto = createItemDto(owner);
+            itemDto.setName(prefix + i);
+            Item item = itemService.createItem(owner.getId(), itemDto);
+            User booker = userService.createUser(createUserDto("booker" + prefix + i,
+                    "booker" + prefix + i + "@mail.ru"));
+            bookingRepository.save(createBooking(item, booker));
+        }
+    }
+
     private Booking createBooking(Item item, User user) {
         Booking booking = new Booking();
         booking.setStart(LocalDateTime.now().plusMinutes(3));
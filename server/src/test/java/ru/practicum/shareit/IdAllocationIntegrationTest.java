@@ -0,0 +1,97 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//Второй контекст приложения работает с той же H2 в памяти и играет роль второго экземпляра сервера.
+//Потоки обоих экземпляров создают пользователей и вещи одновременно
+class IdAllocationIntegrationTest extends IntegrationTestBase {
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 60;
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ItemService itemService;
+
+    @Test
+    public void concurrentCreatesInTwoInstancesGetDistinctIds() throws Exception {
+        List<Integer> userIds = new CopyOnWriteArrayList<>();
+        List<Integer> itemIds = new CopyOnWriteArrayList<>();
+        try (ConfigurableApplicationContext replica = new SpringApplicationBuilder(ShareItServer.class)
+                .profiles("test")
+                .web(WebApplicationType.NONE)
+                .run()) {
+            List<UserService> userServices = List.of(userService, replica.getBean(UserService.class));
+            List<ItemService> itemServices = List.of(itemService, replica.getBean(ItemService.class));
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            CountDownLatch start = new CountDownLatch(1);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    int thread = i;
+                    futures.add(executor.submit(() -> {
+                        UserService users = userServices.get(thread % userServices.size());
+                        ItemService items = itemServices.get(thread % itemServices.size());
+                        start.await();
+                        for (int j = 0; j < PER_THREAD; j++) {
+                            User user = users.createUser(createUserDto("user" + thread + "-" + j));
+                            userIds.add(user.getId());
+                            itemIds.add(items.createItem(user.getId(), createItemDto()).getId());
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        int created = THREADS * PER_THREAD;
+        assertEquals(created, new HashSet<>(userIds).size(), "Пользователи получили одинаковые id");
+        assertEquals(created, new HashSet<>(itemIds).size(), "Вещи получили одинаковые id");
+        assertEquals(created, JdbcTestUtils.countRowsInTable(jdbcTemplate, "users"), "Пользователи перезаписаны");
+        assertEquals(created, JdbcTestUtils.countRowsInTable(jdbcTemplate, "items"), "Вещи перезаписаны");
+    }
+
+    private UserDto createUserDto(String name) {
+        UserDto userDto = new UserDto();
+        userDto.setId(1);
+        userDto.setName(name);
+        userDto.setEmail(name + "@mail.ru");
+        return userDto;
+    }
+
+    private ItemDto createItemDto() {
+        ItemDto itemDto = new ItemDto();
+        itemDto.setId(1);
+        itemDto.setAvailable(true);
+        itemDto.setName("name");
+        itemDto.setDescription("desc");
+        return itemDto;
+    }
+}
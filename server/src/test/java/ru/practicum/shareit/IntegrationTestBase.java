@@ -0,0 +1,46 @@
+package ru.practicum.shareit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import ru.practicum.shareit.item.search.ItemIndex;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.function.Supplier;
+
+//Общая очистка для тестов на общем контексте: после каждого теста удаляются все строки,
+//сбрасываются кэши и перестраиваются поисковые индексы вещей, чтобы следующий тест начинал с пустой бд
+@SpringBootTest
+public abstract class IntegrationTestBase {
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+    @Autowired
+    protected CacheManager cacheManager;
+    @Autowired
+    private List<ItemIndex> itemIndexes;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void clearDatabase() {
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "bookings", "comments", "items", "requests", "users");
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        itemIndexes.forEach(ItemIndex::rebuild);
+    }
+
+    //Выполняет действие и возвращает его результат вместе со статистикой Hibernate только по этому действию.
+    //Стоимость операции проверяется сравнением счетчиков на малом и большом объеме данных
+    protected <T> QueryCount<T> countQueries(Supplier<T> action) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        T result = action.get();
+        return new QueryCount<>(result, statistics.getPrepareStatementCount(), statistics.getEntityLoadCount(),
+                List.of(statistics.getQueries()));
+    }
+}
@@ -1,14 +1,10 @@
 package ru.practicum.shareit;
 
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.test.jdbc.JdbcTestUtils;
 import ru.practicum.shareit.exception.RequestError;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.service.ItemService;
@@ -23,15 +19,15 @@ import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
-@SpringBootTest
-public class ItemRequestServiceIntegrationTest {
-    @Autowired
-    JdbcTemplate jdbcTemplate;
+public class ItemRequestServiceIntegrationTest extends IntegrationTestBase {
     @Autowired
     private ItemRequestService itemRequestService;
     @Autowired
@@ -39,11 +35,6 @@ public class ItemRequestServiceIntegrationTest {
     @Autowired
     private UserService userService;
 
-    @AfterEach
-    void tearDown() {
-        JdbcTestUtils.deleteFromTables(jdbcTemplate, "requests", "bookings", "comments", "items", "users");
-    }
-
     @Test
     public void createItemRequestTest() {
         User user = userService.createUser(createUserDto("иван", "yand@yandex.ru"));
@@ -148,6 +139,65 @@ public class ItemRequestServiceIntegrationTest {
         assertEquals(requestDtoWithPagination.size(), 1, "Неверное значение списка пагинации");
     }
 
+    @Test
+    public void getItemsWithPaginationGroupsSeveralAnswersByRequest() {
+        User user = userService.createUser(createUserDto("иван", "yand@yandex.ru"));
+        User requester = userService.createUser(createUserDto("илья", "mail@yandex.ru"));
+        RequestDto first = createRequestWithAnswers(requester, user, "first", 3);
+        RequestDto second = createRequestWithAnswers(requester, user, "second", 2);
+        createRequestWithAnswers(requester, user, "empty", 0);
+
+        List<RequestDto> requestDtos = new ArrayList<>(itemRequestService.getItemsWithPagination(user.getId(), 0, 10));
+
+        assertEquals(3, requestDtos.size(), "Неверное значение списка пагинации");
+        assertEquals(List.of("empty", "second", "first"), requestDtos.stream().map(RequestDto::getDescription)
+                .collect(Collectors.toList()), "Запросы не отсортированы по дате создания");
+        assertEquals(0, requestDtos.get(0).getItems().size(), "Неверно присвоен список вещей");
+        assertEquals(2, requestDtos.get(1).getItems().size(), "Неверно присвоен список вещей");
+        assertEquals(3, requestDtos.get(2).getItems().size(), "Неверно присвоен список вещей");
+        assertTrue(requestDtos.get(2).getItems().stream()
+                .allMatch(answer -> first.getId().equals(answer.getRequestId())), "Ответ попал не в тот запрос");
+        assertEquals(2, itemRequestService.getRequestById(second.getId(), user.getId()).getItems().size(),
+                "Неверно присвоен список вещей");
+    }
+
+    @Test
+    public void getItemsWithPaginationStatementCountDoesNotDependOnAnswers() {
+        User user = userService.createUser(createUserDto("иван", "yand@yandex.ru"));
+        User requester = userService.createUser(createUserDto("илья", "mail@yandex.ru"));
+        createRequestWithAnswers(requester, user, "first", 1);
+        userService.getUserById(user.getId());
+
+        QueryCount<Collection<RequestDto>> fewAnswers = countQueries(
+                () -> itemRequestService.getItemsWithPagination(user.getId(), 0, 10));
+
+        for (int i = 0; i < 10; i++) {
+            User anotherRequester = userService.createUser(createUserDto("user" + i, "user" + i + "@yandex.ru"));
+            createRequestWithAnswers(anotherRequester, user, "request" + i, 20);
+        }
+        QueryCount<Collection<RequestDto>> manyAnswers = countQueries(
+                () -> itemRequestService.getItemsWithPagination(user.getId(), 0, 10));
+
+        assertEquals(10, manyAnswers.getResult().size(), "Неверное значение списка пагинации");
+        assertEquals(fewAnswers.getStatements(), manyAnswers.getStatements(),
+                "Количество запросов зависит от числа ответов");
+        //Сущностями загружаются только запросы и их авторы, ответы читаются проекцией
+        assertEquals(manyAnswers.getResult().size() * 2L, manyAnswers.getEntityLoads(),
+                "Ответы на запросы загружаются как сущности");
+    }
+
+    private RequestDto createRequestWithAnswers(User requester, User owner, String description, int answers) {
+        ItemRequest request = new ItemRequest();
+        request.setDescription(description);
+        RequestDto requestDto = itemRequestService.createItemRequest(requester.getId(), request);
+        for (int i = 0; i < answers; i++) {
+            ItemDto itemDto = createItemDto(owner);
+            itemDto.setRequestId(requestDto.getId());
+            itemService.createItem(owner.getId(), itemDto);
+        }
+        return requestDto;
+    }
+
     private Executable getErrorForNotFoundRequest() {
         User user = userService.createUser(createUserDto("иван", "yand@yandex.ru"));
         return () -> itemRequestService.getRequestById(1, user.getId());
@@ -1,20 +1,20 @@
 package ru.practicum.shareit;
 
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.test.jdbc.JdbcTestUtils;
+import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.Status;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.exception.RequestError;
 import ru.practicum.shareit.item.dto.CommentResponseDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.user.dto.UserDto;
@@ -22,14 +22,18 @@ import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
-@SpringBootTest
-class ItemServiceIntegrationTest {
+class ItemServiceIntegrationTest extends IntegrationTestBase {
 
     @Autowired
     ItemService itemService;
@@ -38,12 +42,7 @@ class ItemServiceIntegrationTest {
     @Autowired
     BookingRepository bookingRepository;
     @Autowired
-    private JdbcTemplate jdbcTemplate;
-
-    @AfterEach
-    void tearDown() {
-        JdbcTestUtils.deleteFromTables(jdbcTemplate, "bookings", "comments", "items", "users");
-    }
+    BookingService bookingService;
 
     @Test
     public void testCreateItems() {
@@ -190,6 +189,272 @@ class ItemServiceIntegrationTest {
         assertEquals(items.size(), 1, "Неверный поиск по слову");
     }
 
+    @Test
+    public void searchByTextOrderedByRelevance() {
+        User user = userService.createUser(createUserDto());
+        Item inDescription = itemService.createItem(user.getId(), createItemDto(user, "Набор бит", "Подходит под дрель"));
+        Item inName = itemService.createItem(user.getId(), createItemDto(user, "Дрель", "Ударная, с кейсом"));
+        itemService.createItem(user.getId(), createItemDto(user, "Лестница", "Стремянка"));
+
+        List<Item> items = new ArrayList<>(itemService.searchItemByText(user.getId(), "дрель"));
+        assertEquals(List.of(inName.getId(), inDescription.getId()),
+                List.of(items.get(0).getId(), items.get(1).getId()), "Неверный порядок результатов поиска");
+
+        items = new ArrayList<>(itemService.searchItemByText(user.getId(), "удар дрел"));
+        assertEquals(1, items.size(), "В результат должны попасть вещи со всеми словами запроса");
+        assertEquals(inName.getId(), items.get(0).getId());
+
+        items = new ArrayList<>(itemService.searchItemByTextWithPagination(user.getId(), 1, 1, "дрель"));
+        assertEquals(inDescription.getId(), items.get(0).getId(), "Неверная страница результатов поиска");
+    }
+
+    @Test
+    public void suggestItemNamesByPrefix() {
+        User user = userService.createUser(createUserDto());
+        Item drill = itemService.createItem(user.getId(), createItemDto(user, "Дрель ударная", "desc"));
+        Item bits = itemService.createItem(user.getId(), createItemDto(user, "Набор бит для дрели", "desc"));
+        itemService.createItem(user.getId(), createItemDto(user, "Лестница", "desc"));
+
+        List<Integer> ids = itemService.suggestItemNames("дре", 10).stream()
+                .map(ItemSuggestionDto::getId).collect(Collectors.toList());
+        assertEquals(List.of(bits.getId(), drill.getId()), ids, "Неверные подсказки по префиксу");
+        assertEquals(1, itemService.suggestItemNames("дре", 1).size(), "Не учтено ограничение числа подсказок");
+        assertEquals(List.of(drill.getId()), itemService.suggestItemNames("ударная дре", 10).stream()
+                .map(ItemSuggestionDto::getId).collect(Collectors.toList()), "Неверные подсказки по двум словам");
+
+        ItemDto availableDto = new ItemDto();
+        availableDto.setAvailable(false);
+        itemService.updateItem(drill.getId(), user.getId(), availableDto);
+        assertEquals(List.of(bits.getId()), itemService.suggestItemNames("дре", 10).stream()
+                .map(ItemSuggestionDto::getId).collect(Collectors.toList()), "Недоступная вещь в подсказках");
+    }
+
+    @Test
+    public void searchIndexFollowsItemUpdates() {
+        User user = userService.createUser(createUserDto());
+        Item item = itemService.createItem(user.getId(), createItemDto(user, "Отвертка", "Крестовая"));
+
+        ItemDto nameDto = new ItemDto();
+        nameDto.setName("Шуруповерт");
+        itemService.updateItem(item.getId(), user.getId(), nameDto);
+        assertEquals(0, itemService.searchItemByText(user.getId(), "отвертка").size(), "Старое название в индексе");
+        assertEquals(1, itemService.searchItemByText(user.getId(), "шуруп").size(), "Новое название не в индексе");
+
+        ItemDto availableDto = new ItemDto();
+        availableDto.setAvailable(false);
+        itemService.updateItem(item.getId(), user.getId(), availableDto);
+        assertEquals(0, itemService.searchItemByText(user.getId(), "шуруп").size(),
+                "Недоступная вещь найдена поиском");
+
+        availableDto.setAvailable(true);
+        itemService.updateItem(item.getId(), user.getId(), availableDto);
+        assertEquals(1, itemService.searchItemByText(user.getId(), "крестовая").size(),
+                "Доступная вещь не найдена поиском");
+    }
+
+    @Test
+    public void itemAvailabilityFollowsBookingReplies() {
+        User owner = userService.createUser(createUserDto("игорь", "mail@mail.ru"));
+        User booker = userService.createUser(createUserDto());
+        Item item = itemService.createItem(owner.getId(), createItemDto(owner));
+        LocalDateTime start = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = start.plusDays(1);
+
+        ItemAvailabilityDto availability = itemService.getItemAvailability(item.getId(), booker.getId(), start, end);
+        assertEquals(true, availability.isAvailable());
+        assertEquals(false, availability.isRequested());
+
+        Booking booking = createBooking(item, booker);
+        booking.setStart(start.plusHours(2));
+        booking.setEnd(start.plusHours(4));
+        BookingDto bookingDto = bookingService.createBooking(booking);
+        availability = itemService.getItemAvailability(item.getId(), booker.getId(), start, end);
+        assertEquals(true, availability.isAvailable(), "Ожидающий запрос занял вещь");
+        assertEquals(true, availability.isRequested(), "Новый запрос не попал в индекс");
+
+        bookingService.replyToBooking(owner.getId(), bookingDto.getId(), true);
+        availability = itemService.getItemAvailability(item.getId(), booker.getId(), start, end);
+        assertEquals(false, availability.isAvailable(), "Подтвержденная аренда не попала в индекс");
+        assertEquals(false, availability.isRequested());
+        assertEquals(true, itemService.getItemAvailability(item.getId(), booker.getId(), start.plusHours(4), end)
+                .isAvailable(), "Период после аренды занят");
+
+        ItemDto unavailableDto = new ItemDto();
+        unavailableDto.setAvailable(false);
+        itemService.updateItem(item.getId(), owner.getId(), unavailableDto);
+        assertEquals(false, itemService.getItemAvailability(item.getId(), booker.getId(), start.plusHours(4), end)
+                .isAvailable(), "Недоступная вещь свободна");
+    }
+
+    @Test
+    public void searchAvailableItemsExcludesBookedItems() {
+        User owner = userService.createUser(createUserDto("игорь", "mail@mail.ru"));
+        User booker = userService.createUser(createUserDto());
+        Item booked = itemService.createItem(owner.getId(), createItemDto(owner, "Дрель", "Ударная"));
+        Item free = itemService.createItem(owner.getId(), createItemDto(owner, "Дрель", "Аккумуляторная"));
+        LocalDateTime start = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = start.plusDays(1);
+        assertEquals(2, itemService.searchAvailableItems(booker.getId(), "дрель", start, end, null, null).size());
+
+        Booking booking = createBooking(booked, booker);
+        booking.setStart(start.minusHours(2));
+        booking.setEnd(start.plusHours(2));
+        bookingService.replyToBooking(owner.getId(), bookingService.createBooking(booking).getId(), true);
+
+        List<Integer> ids = itemService.searchAvailableItems(booker.getId(), "дрель", start, end, null, null).stream()
+                .map(Item::getId).collect(Collectors.toList());
+        assertEquals(List.of(free.getId()), ids, "Занятая вещь найдена поиском по периоду");
+        assertEquals(1, itemService.searchAvailableItems(booker.getId(), "дрель", start.plusHours(2), end, 0, 1)
+                .size(), "Свободная после аренды вещь не найдена");
+        assertEquals(0, itemService.searchAvailableItems(booker.getId(), "дрель", start, end, 1, 1).size(),
+                "Страница отобрана до фильтра по периоду");
+    }
+
+    @Test
+    public void getRequestErrorItemAvailabilityIncorrectPeriod() {
+        User user = userService.createUser(createUserDto());
+        Item item = itemService.createItem(user.getId(), createItemDto(user));
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+
+        RequestError er = Assertions.assertThrows(RequestError.class,
+                () -> itemService.getItemAvailability(item.getId(), user.getId(), start, start.minusHours(1)));
+        assertEquals(HttpStatus.BAD_REQUEST, er.getStatus());
+        er = Assertions.assertThrows(RequestError.class,
+                () -> itemService.searchAvailableItems(user.getId(), "name", null, start, null, null));
+        assertEquals(HttpStatus.BAD_REQUEST, er.getStatus());
+        er = Assertions.assertThrows(RequestError.class,
+                () -> itemService.getItemAvailability(item.getId() + 1, user.getId(), start, start.plusHours(1)));
+        assertEquals(HttpStatus.NOT_FOUND, er.getStatus());
+    }
+
+    @Test
+    public void getAllItemsOwnerUsesConstantNumberOfQueries() {
+        User booker = userService.createUser(createUserDto("booker", "booker@mail.ru"));
+        User fewItemsOwner = userService.createUser(createUserDto("few", "few@mail.ru"));
+        User manyItemsOwner = userService.createUser(createUserDto("many", "many@mail.ru"));
+        createItemsWithBookingsAndComments(fewItemsOwner, booker, 2);
+        createItemsWithBookingsAndComments(manyItemsOwner, booker, 10);
+
+        QueryCount<Collection<ItemDto>> fewItems = countQueries(
+                () -> itemService.getAllItemsOwner(fewItemsOwner.getId()));
+        QueryCount<Collection<ItemDto>> manyItems = countQueries(
+                () -> itemService.getAllItemsOwner(manyItemsOwner.getId()));
+
+        assertEquals(2, fewItems.getResult().size());
+        assertEquals(10, manyItems.getResult().size());
+        assertEquals(fewItems.getStatements(), manyItems.getStatements(),
+                "Количество запросов зависит от числа вещей");
+        manyItems.getResult().forEach(itemDto -> {
+            assertEquals(1, itemDto.getComments().size(), "Не загружены комментарии вещи");
+            assertEquals(itemDto.getId(), itemDto.getLastBooking().getItemId(), "Чужая аренда у вещи");
+        });
+    }
+
+    @Test
+    public void getAllItemsOwnerSortedByLastBookingStart() {
+        User owner = userService.createUser(createUserDto("owner", "owner@mail.ru"));
+        User booker = userService.createUser(createUserDto("booker", "booker@mail.ru"));
+        Item withoutBookings = itemService.createItem(owner.getId(), createItemDto(owner));
+        List<Item> items = createItemsWithBookingsAndComments(owner, booker, 3);
+
+        List<Integer> ids = itemService.getAllItemsOwner(owner.getId()).stream()
+                .map(ItemDto::getId).collect(Collectors.toList());
+
+        assertEquals(List.of(items.get(2).getId(), items.get(1).getId(), items.get(0).getId(),
+                withoutBookings.getId()), ids, "Неверный порядок вещей владельца");
+    }
+
+    @Test
+    public void streamAllItemsOwnerInSameOrderAsList() {
+        User owner = userService.createUser(createUserDto("owner", "owner@mail.ru"));
+        User booker = userService.createUser(createUserDto("booker", "booker@mail.ru"));
+        itemService.createItem(owner.getId(), createItemDto(owner));
+        createItemsWithBookingsAndComments(owner, booker, 3);
+        List<ItemDto> streamed = new ArrayList<>();
+
+        itemService.streamAllItemsOwner(owner.getId()).forEach(streamed::add);
+
+        assertEquals(itemService.getAllItemsOwner(owner.getId()).stream().map(ItemDto::getId)
+                        .collect(Collectors.toList()), streamed.stream().map(ItemDto::getId).collect(Collectors.toList()),
+                "Порядок потокового вывода отличается от списка");
+        streamed.stream().limit(3).forEach(itemDto -> {
+            assertEquals(itemDto.getId(), itemDto.getLastBooking().getItemId(), "Чужая аренда у вещи");
+            assertEquals(1, itemDto.getComments().size(), "Не загружены комментарии вещи");
+        });
+    }
+
+    @Test
+    public void getItemByIdReturnsLastAndNextApprovedBooking() {
+        User owner = userService.createUser(createUserDto("owner", "owner@mail.ru"));
+        User booker = userService.createUser(createUserDto("booker", "booker@mail.ru"));
+        Item shortHistory = itemService.createItem(owner.getId(), createItemDto(owner));
+        Item longHistory = itemService.createItem(owner.getId(), createItemDto(owner));
+        LocalDateTime now = LocalDateTime.now();
+        saveBooking(shortHistory, booker, now.minusDays(3), Status.APPROVED);
+        saveBooking(shortHistory, booker, now.plusDays(3), Status.APPROVED);
+        for (int i = 2; i < 20; i++) {
+            saveBooking(longHistory, booker, now.minusDays(i * 2L), Status.APPROVED);
+            saveBooking(longHistory, booker, now.plusDays(i * 2L), Status.APPROVED);
+        }
+        Booking last = saveBooking(longHistory, booker, now.minusDays(2), Status.APPROVED);
+        Booking next = saveBooking(longHistory, booker, now.plusDays(2), Status.APPROVED);
+        saveBooking(longHistory, booker, now.minusDays(1), Status.REJECTED);
+        saveBooking(longHistory, booker, now.plusDays(1), Status.WAITING);
+
+        QueryCount<ItemDto> shortHistoryItem = countQueries(
+                () -> itemService.getItemById(shortHistory.getId(), owner.getId()));
+        QueryCount<ItemDto> longHistoryItem = countQueries(
+                () -> itemService.getItemById(longHistory.getId(), owner.getId()));
+
+        ItemDto itemDto = longHistoryItem.getResult();
+        assertEquals(last.getId(), itemDto.getLastBooking().getId(), "Неверная последняя аренда");
+        assertEquals(next.getId(), itemDto.getNextBooking().getId(), "Неверная следующая аренда");
+        assertEquals(shortHistoryItem.getEntityLoads(), longHistoryItem.getEntityLoads(),
+                "Количество загруженных аренд зависит от истории аренд вещи");
+        assertThat(itemService.getItemById(longHistory.getId(), booker.getId()))
+                .hasFieldOrPropertyWithValue("lastBooking", null)
+                .hasFieldOrPropertyWithValue("nextBooking", null);
+    }
+
+    @Test
+    public void itemEtagChangesWithItemView() {
+        User owner = userService.createUser(createUserDto("owner", "owner@mail.ru"));
+        User booker = userService.createUser(createUserDto("booker", "booker@mail.ru"));
+        Item item = itemService.createItem(owner.getId(), createItemDto(owner));
+        String etag = itemService.getItemEtag(item.getId(), booker.getId());
+        String ownerEtag = itemService.getItemEtag(item.getId(), owner.getId());
+
+        assertEquals(etag, itemService.getItemEtag(item.getId(), booker.getId()), "ETag изменился без изменений");
+        bookingRepository.save(createBooking(item, booker));
+        assertEquals(etag, itemService.getItemEtag(item.getId(), booker.getId()),
+                "Аренда изменила ETag вещи для пользователя, который ее не видит");
+        assertNotEquals(ownerEtag, itemService.getItemEtag(item.getId(), owner.getId()),
+                "Начавшаяся аренда не изменила ETag вещи у владельца");
+
+        itemService.createComment(booker.getId(), item.getId(), "отлично");
+        String commented = itemService.getItemEtag(item.getId(), booker.getId());
+        assertNotEquals(etag, commented, "Комментарий не изменил ETag вещи");
+
+        UserDto rename = new UserDto();
+        rename.setId(booker.getId());
+        rename.setName("арендатор");
+        userService.updateUser(rename);
+        String renamed = itemService.getItemEtag(item.getId(), booker.getId());
+        assertNotEquals(commented, renamed, "Переименование автора комментария не изменило ETag вещи");
+
+        ItemDto update = new ItemDto();
+        update.setDescription("новое описание");
+        itemService.updateItem(item.getId(), owner.getId(), update);
+        assertNotEquals(renamed, itemService.getItemEtag(item.getId(), booker.getId()),
+                "Изменение вещи не изменило ETag");
+    }
+
+    @Test
+    public void getItemEtagNotFoundItem() {
+        RequestError er = Assertions.assertThrows(RequestError.class, () -> itemService.getItemEtag(100, 1));
+        assertEquals(HttpStatus.NOT_FOUND, er.getStatus());
+    }
+
     @Test
     public void createComment() {
         User user = userService.createUser(createUserDto());
@@ -211,6 +476,67 @@ class ItemServiceIntegrationTest {
                 );
     }
 
+    @Test
+    public void createCommentCostDoesNotDependOnBookingHistory() {
+        User owner = userService.createUser(createUserDto("owner", "owner@mail.ru"));
+        User booker = userService.createUser(createUserDto("booker", "booker@mail.ru"));
+        User other = userService.createUser(createUserDto("other", "other@mail.ru"));
+        Item shortHistory = itemService.createItem(owner.getId(), createItemDto(owner));
+        Item longHistory = itemService.createItem(owner.getId(), createItemDto(owner));
+        LocalDateTime start = LocalDateTime.now().minusDays(100);
+        saveBooking(shortHistory, booker, start, Status.APPROVED);
+        saveBooking(longHistory, booker, start, Status.APPROVED);
+        for (int i = 1; i < 30; i++) {
+            saveBooking(longHistory, other, start.plusDays(i), Status.APPROVED);
+            saveBooking(longHistory, booker, start.plusDays(i), Status.APPROVED);
+        }
+
+        QueryCount<CommentResponseDto> shortHistoryComment = countQueries(
+                () -> itemService.createComment(booker.getId(), shortHistory.getId(), "первый"));
+        QueryCount<CommentResponseDto> longHistoryComment = countQueries(
+                () -> itemService.createComment(booker.getId(), longHistory.getId(), "второй"));
+
+        assertEquals(shortHistoryComment.getStatements(), longHistoryComment.getStatements(),
+                "Количество запросов зависит от истории аренд");
+        assertEquals(shortHistoryComment.getEntityLoads(), longHistoryComment.getEntityLoads(),
+                "Количество загруженных строк зависит от истории аренд");
+    }
+
+    @Test
+    public void commentEligibilityUpdatedAfterNewBooking() {
+        User owner = userService.createUser(createUserDto("owner", "owner@mail.ru"));
+        User booker = userService.createUser(createUserDto("booker", "booker@mail.ru"));
+        Item item = itemService.createItem(owner.getId(), createItemDto(owner));
+
+        RequestError notBooker = Assertions.assertThrows(RequestError.class,
+                () -> itemService.createComment(booker.getId(), item.getId(), "отзыв"));
+        assertEquals("Пользователь не брал вещь в аренду", notBooker.getReason());
+
+        saveBooking(item, booker, LocalDateTime.now().plusDays(1), Status.APPROVED);
+        RequestError notFinished = Assertions.assertThrows(RequestError.class,
+                () -> itemService.createComment(booker.getId(), item.getId(), "отзыв"));
+        assertEquals("Вещь все еще находится в аренде у пользователя", notFinished.getReason());
+
+        saveBooking(item, booker, LocalDateTime.now().minusDays(2), Status.APPROVED);
+        assertEquals("отзыв", itemService.createComment(booker.getId(), item.getId(), "отзыв").getText());
+    }
+
+    @Test
+    public void commentEligibilityCountsOnlyApprovedBookings() {
+        User owner = userService.createUser(createUserDto("owner", "owner@mail.ru"));
+        User booker = userService.createUser(createUserDto("booker", "booker@mail.ru"));
+        Item item = itemService.createItem(owner.getId(), createItemDto(owner));
+        saveBooking(item, booker, LocalDateTime.now().minusDays(4), Status.REJECTED);
+        Booking waiting = saveBooking(item, booker, LocalDateTime.now().minusDays(2), Status.WAITING);
+
+        RequestError notApproved = Assertions.assertThrows(RequestError.class,
+                () -> itemService.createComment(booker.getId(), item.getId(), "отзыв"));
+        assertEquals("Пользователь не брал вещь в аренду", notApproved.getReason());
+
+        bookingService.replyToBooking(owner.getId(), waiting.getId(), true);
+        assertEquals("отзыв", itemService.createComment(booker.getId(), item.getId(), "отзыв").getText());
+    }
+
     @Test
     public void getRequestErrorCreateItemNotUser() {
         RequestError er = Assertions.assertThrows(
@@ -315,6 +641,39 @@ class ItemServiceIntegrationTest {
         };
     }
 
+    private Booking saveBooking(Item item, User booker, LocalDateTime start, Status status) {
+        Booking booking = createBooking(item, booker);
+        booking.setStart(start);
+        booking.setEnd(start.plusHours(12));
+        booking.setStatus(status);
+        return bookingRepository.save(booking);
+    }
+
+    private List<Item> createItemsWithBookingsAndComments(User owner, User booker, int count) {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Item item = itemService.createItem(owner.getId(), createItemDto(owner));
+            Booking last = createBooking(item, booker);
+            last.setStart(last.getStart().plusDays(i));
+            last.setEnd(last.getEnd().plusDays(i));
+            bookingRepository.save(last);
+            Booking next = createBooking(item, booker);
+            next.setStart(LocalDateTime.now().plusDays(i + 1));
+            next.setEnd(LocalDateTime.now().plusDays(i + 2));
+            bookingRepository.save(next);
+            itemService.createComment(booker.getId(), item.getId(), "комментарий " + i);
+            items.add(item);
+        }
+        return items;
+    }
+
+    private ItemDto createItemDto(User user, String name, String description) {
+        ItemDto itemDto = createItemDto(user);
+        itemDto.setName(name);
+        itemDto.setDescription(description);
+        return itemDto;
+    }
+
     private ItemDto createItemDto(User user) {
         ItemDto itemDto = new ItemDto();
         itemDto.setAvailable(true);
@@ -334,6 +693,13 @@ class ItemServiceIntegrationTest {
         return booking;
     }
 
+    private UserDto createUserDto(String name, String email) {
+        UserDto userDto = new UserDto();
+        userDto.setName(name);
+        userDto.setEmail(email);
+        return userDto;
+    }
+
     private UserDto createUserDto() {
         UserDto userDto = new UserDto();
         userDto.setId(1);
@@ -0,0 +1,15 @@
+package ru.practicum.shareit;
+
+import lombok.Value;
+
+import java.util.List;
+
+//Результат действия и обращения к бд, которые оно выполнило
+@Value
+public class QueryCount<T> {
+    T result;
+    long statements;
+    long entityLoads;
+    //Тексты выполненных HQL-запросов
+    List<String> queries;
+}
@@ -0,0 +1,110 @@
+package ru.practicum.shareit;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SchemaMigrationIntegrationTest extends IntegrationTestBase {
+    private static final int USERS = 50;
+    private static final int ITEMS_PER_USER = 10;
+    private static final int BOOKINGS_PER_ITEM = 5;
+
+    @Autowired
+    private Flyway flyway;
+    private long userId;
+    private long itemId;
+
+    @BeforeEach
+    void seed() {
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new Object[]{"user" + i, "explain" + i + "@mail.ru"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (name, email) VALUES (?, ?)", users);
+        List<Long> userIds = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Long.class);
+
+        List<Object[]> items = new ArrayList<>();
+        userIds.forEach(owner -> {
+            for (int i = 0; i < ITEMS_PER_USER; i++) {
+                items.add(new Object[]{"item" + i, "desc", true, owner});
+            }
+        });
+        jdbcTemplate.batchUpdate("INSERT INTO items (name, description, is_available, owner_id) " +
+                "VALUES (?, ?, ?, ?)", items);
+        List<Long> itemIds = jdbcTemplate.queryForList("SELECT id FROM items ORDER BY id", Long.class);
+
+        List<Object[]> bookings = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < itemIds.size(); i++) {
+            for (int j = 0; j < BOOKINGS_PER_ITEM; j++) {
+                bookings.add(new Object[]{Timestamp.valueOf(now.plusDays(j)), Timestamp.valueOf(now.plusDays(j + 1)),
+                        itemIds.get(i), userIds.get((i + j) % userIds.size()), "WAITING"});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO bookings (start_date, end_date, item_id, booker_id, status) " +
+                "VALUES (?, ?, ?, ?, ?)", bookings);
+        jdbcTemplate.execute("ANALYZE");
+        userId = userIds.get(0);
+        itemId = itemIds.get(0);
+    }
+
+    @Test
+    public void allMigrationsApplied() {
+        assertEquals(0, flyway.info().pending().length, "Не все миграции применены");
+        assertTrue(flyway.info().current().getVersion().getMajor().intValue() >= 2, "Индексы не созданы");
+    }
+
+    //H2 сам индексирует внешние ключи, поэтому для запросов по одной колонке планировщик может выбрать
+    //индекс ограничения вместо созданного миграцией. Проверяется главное - отсутствие полного просмотра таблиц
+    @Test
+    public void bookerQueriesUseIndexes() {
+        assertUsesIndex("SELECT * FROM bookings WHERE booker_id = " + userId + " ORDER BY start_date DESC");
+        assertUsesIndex("SELECT * FROM bookings WHERE booker_id = " + userId + " AND status = 'WAITING' " +
+                "ORDER BY start_date DESC", "IDX_BOOKINGS_BOOKER_STATUS_START");
+        assertUsesIndex("SELECT * FROM bookings WHERE booker_id = " + userId + " AND item_id = " + itemId +
+                " AND end_date < CURRENT_TIMESTAMP");
+    }
+
+    @Test
+    public void ownerQueriesUseIndexes() {
+        assertUsesIndex("SELECT b.* FROM bookings b JOIN items i ON i.id = b.item_id " +
+                "WHERE i.owner_id = " + userId + " ORDER BY b.start_date DESC");
+        assertUsesIndex("SELECT * FROM items WHERE owner_id = " + userId);
+        assertUsesIndex("SELECT b.* FROM bookings b JOIN items i ON i.id = b.item_id " +
+                "WHERE i.owner_id = " + userId + " AND b.status = 'WAITING' ORDER BY b.start_date DESC, b.id DESC");
+    }
+
+    @Test
+    public void itemQueriesUseIndexes() {
+        assertUsesIndex("SELECT * FROM bookings WHERE item_id = " + itemId + " ORDER BY start_date");
+        assertUsesIndex("SELECT * FROM comments WHERE item_id = " + itemId);
+        assertUsesIndex("SELECT * FROM items WHERE request_id = 1");
+        assertUsesIndex("SELECT * FROM requests WHERE requester = " + userId + " ORDER BY created DESC");
+    }
+
+    private void assertUsesIndex(String sql, String index) {
+        String plan = explain(sql);
+        assertTrue(plan.contains(index), "Не используется индекс " + index + ": " + plan);
+        assertUsesIndex(sql);
+    }
+
+    private void assertUsesIndex(String sql) {
+        String plan = explain(sql);
+        assertTrue(plan.contains("/* PUBLIC."), "Неожиданный формат плана запроса: " + plan);
+        assertFalse(plan.contains("tableScan"), "Полный просмотр таблицы: " + plan);
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+    }
+}
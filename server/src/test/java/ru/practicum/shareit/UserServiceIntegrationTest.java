@@ -1,37 +1,47 @@
 package ru.practicum.shareit;
 
-import org.junit.jupiter.api.AfterEach;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.shareit.exception.RequestError;
+import ru.practicum.shareit.stream.ChunkedReader;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
 import ru.practicum.shareit.user.service.UserService;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
-@SpringBootTest
-public class UserServiceIntegrationTest {
+public class UserServiceIntegrationTest extends IntegrationTestBase {
 
     @Autowired
     UserService userService;
     @Autowired
-    private JdbcTemplate jdbcTemplate;
-
-    @AfterEach
-    void tearDown() {
-        JdbcTestUtils.deleteFromTables(jdbcTemplate, "users");
-        userService.deleteAllUser();
-    }
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Test
     public void testCreateUser() {
@@ -90,6 +100,131 @@ public class UserServiceIntegrationTest {
         assertEquals(HttpStatus.BAD_REQUEST, er.getStatus());
     }
 
+    @Test
+    public void updateUserCostDoesNotDependOnUsersCount() {
+        User userTest = userService.createUser(createUserDto("иван"));
+        UserDto userDto = createUserDto("олег");
+        userDto.setId(userTest.getId());
+        userDto.setEmail(null);
+        userService.updateUser(userDto);
+
+        QueryCount<User> fewUsers = countQueries(() -> userService.updateUser(userDto));
+        createUsers(500);
+        QueryCount<User> manyUsers = countQueries(() -> userService.updateUser(userDto));
+
+        assertEquals(fewUsers.getStatements(), manyUsers.getStatements(),
+                "Количество запросов зависит от числа пользователей");
+        assertEquals(fewUsers.getEntityLoads(), manyUsers.getEntityLoads(),
+                "Количество загруженных сущностей зависит от числа пользователей");
+    }
+
+    @Test
+    public void getRequestErrorForDeleteUserRemovedOutsideService() {
+        User userTest = userService.createUser(createUserDto("иван"));
+        UserDto userDto = createUserDto("олег");
+        userDto.setId(userTest.getId());
+        userService.updateUser(userDto);
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "users");
+
+        RequestError er = Assertions.assertThrows(
+                RequestError.class,
+                () -> userService.deleteUserById(userTest.getId())
+        );
+        assertEquals(HttpStatus.BAD_REQUEST, er.getStatus());
+    }
+
+    @Test
+    public void getUserByIdServedFromCacheUntilUpdate() {
+        User userTest = userService.createUser(createUserDto("иван"));
+
+        QueryCount<User> repeated = countQueries(() -> {
+            userService.getUserById(userTest.getId());
+            return userService.getUserById(userTest.getId());
+        });
+        assertEquals(1, repeated.getStatements(), "Повторный запрос пользователя не взят из кэша");
+
+        UserDto userDto = createUserDto("олег");
+        userDto.setId(userTest.getId());
+        userDto.setEmail(null);
+        userService.updateUser(userDto);
+        assertEquals("олег", userService.getUserById(userTest.getId()).getName());
+
+        userDto.setName(null);
+        userDto.setEmail("new@yandex.ru");
+        userService.updateUser(userDto);
+        assertEquals("new@yandex.ru", userService.getUserById(userTest.getId()).getEmail());
+
+        userService.deleteUserById(userTest.getId());
+        RequestError er = Assertions.assertThrows(
+                RequestError.class,
+                () -> userService.getUserById(userTest.getId())
+        );
+        assertEquals(HttpStatus.NOT_FOUND, er.getStatus());
+    }
+
+    @Test
+    public void getUserByIdReturnsCopyOfCachedUser() {
+        User userTest = userService.createUser(createUserDto("иван"));
+
+        userService.getUserById(userTest.getId()).setName("олег");
+
+        assertEquals("иван", userService.getUserById(userTest.getId()).getName(), "Изменение попало в кэш");
+    }
+
+    @Test
+    public void usersCacheEvictedAfterCommit() {
+        User userTest = userService.createUser(createUserDto("иван"));
+        userService.getUserById(userTest.getId());
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userRepository.updateUserName("олег", userTest.getId());
+            assertNotNull(cacheManager.getCache("users").get(userTest.getId()), "Кэш сброшен до фиксации");
+        });
+
+        assertNull(cacheManager.getCache("users").get(userTest.getId()), "Кэш не сброшен после фиксации");
+        assertEquals("олег", userService.getUserById(userTest.getId()).getName());
+    }
+
+    @Test
+    public void usersCacheMetricsExported() {
+        User userTest = userService.createUser(createUserDto("иван"));
+        double hits = meterRegistry.get("cache.gets").tags("cache", "users", "result", "hit")
+                .functionCounter().count();
+
+        userService.getUserById(userTest.getId());
+        userService.getUserById(userTest.getId());
+
+        assertEquals(hits + 1, meterRegistry.get("cache.gets").tags("cache", "users", "result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    public void streamAllUsersKeepsOneChunkInPersistenceContext() {
+        int count = ChunkedReader.CHUNK_SIZE * 2 + 10;
+        createUsers(count);
+        List<Integer> ids = new ArrayList<>();
+        int[] maxManagedEntities = {0};
+
+        userService.streamAllUsers().forEach(user -> {
+            ids.add(user.getId());
+            maxManagedEntities[0] = Math.max(maxManagedEntities[0],
+                    entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+        });
+
+        assertEquals(count, ids.size(), "Выведены не все пользователи");
+        assertEquals(ids.stream().sorted().collect(Collectors.toList()), ids, "Пользователи выведены не по порядку");
+        assertTrue(maxManagedEntities[0] <= ChunkedReader.CHUNK_SIZE,
+                "Контекст персистентности растет вместе с выборкой");
+    }
+
+    private void createUsers(int count) {
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(new Object[]{"user" + i, "user" + i + "@mail.ru"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (name, email) VALUES (?, ?)", users);
+    }
+
     private Executable generateExecutableForDeleteNotFoundUser() {
         return () -> userService.deleteUserById(1);
 
@@ -0,0 +1,166 @@
+package ru.practicum.shareit.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.practicum.shareit.IntegrationTestBase;
+import ru.practicum.shareit.booking.availability.ItemAvailabilityIndex;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.ItemSearchEngine;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Запуск: mvn test -pl server -Dtest=AvailableItemSearchBenchmarkTest -Dshareit.benchmark=true -DargLine=-Xmx8g
+//[-Dshareit.benchmark.items=1000000 -Dshareit.benchmark.bookings=10000000]
+//Поиск свободных на период вещей сравнивается с прежним способом: найти все вещи по тексту и отфильтровать
+//занятые по ItemAvailabilityIndex. Для справки выводится время LIKE и NOT EXISTS, которые отдают вещи
+//в порядке id без ранжирования. В профиле test работает индекс в памяти и ItemAvailabilityIndex;
+//для PostgreSQL (tsvector и GiST-индекс ограничения BOOKINGS_APPROVED_NO_OVERLAP) запускать
+//с shareit.search.engine=postgres
+@Slf4j
+@EnabledIfSystemProperty(named = "shareit.benchmark", matches = "true")
+public class AvailableItemSearchBenchmarkTest extends IntegrationTestBase {
+    private static final int ITEMS = Integer.getInteger("shareit.benchmark.items", 1_000_000);
+    private static final int BOOKINGS = Integer.getInteger("shareit.benchmark.bookings", 10_000_000);
+    private static final int QUERIES = Integer.getInteger("shareit.benchmark.queries", 200);
+    private static final int PAGE_SIZE = 20;
+    private static final int BATCH_SIZE = 10_000;
+    //Аренды одной вещи лежат в своих интервалах и не пересекаются, как требует ограничение в PostgreSQL
+    private static final int SLOT_HOURS = 72;
+    private static final String[] WORDS = {"дрель", "перфоратор", "лестница", "палатка", "велосипед", "самокат",
+            "отвертка", "пила", "гитара", "проектор", "кофеварка", "рюкзак", "спальник", "удочка", "лыжи",
+            "ударная", "складная", "детская", "туристическая", "электрическая", "новая", "большая", "легкая"};
+    private static final String LIKE_QUERY = "select i.id from items i where i.is_available = true " +
+            "and (upper(i.name) like ? or upper(i.description) like ?) " +
+            "and not exists (select 1 from bookings b where b.item_id = i.id and b.status = 'APPROVED' " +
+            "and b.start_date < ? and b.end_date > ?) order by i.id limit " + PAGE_SIZE;
+    private static final String OVERLAPS_QUERY = "select count(*) from bookings b where b.item_id = ? " +
+            "and b.status = 'APPROVED' and b.start_date < ? and b.end_date > ?";
+
+    private final LocalDateTime base = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.DAYS);
+    private final int horizonHours = Math.max(1, BOOKINGS / ITEMS) * SLOT_HOURS;
+
+    @Autowired
+    private ItemSearchEngine itemSearchEngine;
+    @Autowired
+    private ItemAvailabilityIndex itemAvailabilityIndex;
+
+    @Test
+    public void searchAvailableIsFasterThanFilteringAllFoundItems() {
+        seedItemsAndBookings();
+        itemSearchEngine.rebuild();
+        Random random = new Random(42);
+        List<Query> queries = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            LocalDateTime start = base.plusHours(random.nextInt(horizonHours));
+            queries.add(new Query(word.substring(0, 3 + random.nextInt(word.length() - 2)), start,
+                    start.plusHours(1 + random.nextInt(SLOT_HOURS))));
+        }
+
+        double engineMillis = measure(queries, query -> itemSearchEngine.searchAvailable(query.text, query.start,
+                query.end, 0, PAGE_SIZE));
+        double filterMillis = measure(queries, query -> {
+            List<Item> items = itemSearchEngine.search(query.text, 0, Integer.MAX_VALUE);
+            Set<Integer> booked = itemAvailabilityIndex.findBooked(
+                    items.stream().map(Item::getId).collect(Collectors.toList()), query.start, query.end);
+            return items.stream().filter(item -> !booked.contains(item.getId())).limit(PAGE_SIZE)
+                    .collect(Collectors.toList());
+        });
+        double likeMillis = measure(queries, query -> {
+            String pattern = "%" + query.text.toUpperCase() + "%";
+            return jdbcTemplate.queryForList(LIKE_QUERY, Integer.class, pattern, pattern,
+                    Timestamp.valueOf(query.end), Timestamp.valueOf(query.start));
+        });
+        log.info("Вещей: {}, аренд: {}, поиск и фильтр: {} мс/запрос, LIKE и NOT EXISTS: {} мс/запрос, " +
+                "{}: {} мс/запрос", ITEMS, BOOKINGS, String.format("%.2f", filterMillis),
+                String.format("%.2f", likeMillis), itemSearchEngine.getClass().getSimpleName(),
+                String.format("%.2f", engineMillis));
+
+        for (Query query : queries.subList(0, QUERIES / 10)) {
+            for (Item item : itemSearchEngine.searchAvailable(query.text, query.start, query.end, 0, PAGE_SIZE)) {
+                assertEquals(0, jdbcTemplate.queryForObject(OVERLAPS_QUERY, Integer.class, item.getId(),
+                        Timestamp.valueOf(query.end), Timestamp.valueOf(query.start)), "Найдена занятая вещь");
+            }
+        }
+        assertTrue(engineMillis < filterMillis, "Поиск свободных вещей медленнее фильтра всех найденных");
+    }
+
+    private double measure(List<Query> queries, Function<Query, ?> search) {
+        queries.stream().limit(QUERIES / 10).forEach(search::apply);
+        long start = System.nanoTime();
+        queries.forEach(search::apply);
+        return (System.nanoTime() - start) / 1_000_000.0 / queries.size();
+    }
+
+    private void seedItemsAndBookings() {
+        jdbcTemplate.update("INSERT INTO users (name, email) VALUES ('owner', 'owner@mail.ru')");
+        jdbcTemplate.update("INSERT INTO users (name, email) VALUES ('booker', 'booker@mail.ru')");
+        Long ownerId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE name = 'owner'", Long.class);
+        Long bookerId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE name = 'booker'", Long.class);
+        Random random = new Random(7);
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < ITEMS; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            String description = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+            batch.add(new Object[]{name, description, random.nextInt(10) > 0, ownerId});
+            if (batch.size() == BATCH_SIZE) {
+                insertItems(batch);
+            }
+        }
+        insertItems(batch);
+
+        List<Long> itemIds = jdbcTemplate.queryForList("SELECT id FROM items ORDER BY id", Long.class);
+        for (int i = 0; i < BOOKINGS; i++) {
+            long itemId = itemIds.get(i % itemIds.size());
+            LocalDateTime start = base.plusHours((long) (i / itemIds.size()) * SLOT_HOURS
+                    + random.nextInt(SLOT_HOURS / 2));
+            LocalDateTime end = start.plusHours(1 + random.nextInt(SLOT_HOURS / 2));
+            int status = random.nextInt(10);
+            batch.add(new Object[]{Timestamp.valueOf(start), Timestamp.valueOf(end), itemId, bookerId,
+                    status < 7 ? "APPROVED" : status < 9 ? "WAITING" : "REJECTED"});
+            if (batch.size() == BATCH_SIZE) {
+                insertBookings(batch);
+            }
+        }
+        insertBookings(batch);
+    }
+
+    private void insertItems(List<Object[]> batch) {
+        if (batch.isEmpty()) return;
+        jdbcTemplate.batchUpdate("INSERT INTO items (name, description, is_available, owner_id) " +
+                "VALUES (?, ?, ?, ?)", batch);
+        batch.clear();
+    }
+
+    private void insertBookings(List<Object[]> batch) {
+        if (batch.isEmpty()) return;
+        jdbcTemplate.batchUpdate("INSERT INTO bookings (start_date, end_date, item_id, booker_id, status) " +
+                "VALUES (?, ?, ?, ?, ?)", batch);
+        batch.clear();
+    }
+
+    private static final class Query {
+        private final String text;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+
+        private Query(String text, LocalDateTime start, LocalDateTime end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package ru.practicum.shareit.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.ShareItServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Запуск: mvn test -pl server -Dtest=ExecutionModeLoadTest -Dshareit.benchmark=true [-Dshareit.benchmark.burst=500]
+//Сервер поднимается в режимах platform и virtual (virtual - только на Java 21+) и получает всплески запросов
+//на списки бронирований. С H2 в памяти запросы упираются в процессор, а не в ожидание БД; показательные
+//замеры - на PostgreSQL: -Dshareit.benchmark.profile=default и настройки spring.datasource.*
+@Slf4j
+@EnabledIfSystemProperty(named = "shareit.benchmark", matches = "true")
+public class ExecutionModeLoadTest {
+    private static final String PROFILE = System.getProperty("shareit.benchmark.profile", "test");
+    private static final int BURST = Integer.getInteger("shareit.benchmark.burst", 500);
+    private static final int BURSTS = Integer.getInteger("shareit.benchmark.bursts", 10);
+    private static final int TOMCAT_THREADS = Integer.getInteger("shareit.benchmark.tomcat-threads", 50);
+    private static final int BOOKERS = 100;
+    private static final int BOOKINGS_PER_BOOKER = 50;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    public void compareP99LatencyBetweenExecutionModes() {
+        Map<String, Double> p99 = new LinkedHashMap<>();
+        p99.put("platform", measureP99("platform"));
+        if (Runtime.version().feature() >= 21) {
+            p99.put("virtual", measureP99("virtual"));
+        } else {
+            log.warn("Режим virtual пропущен: требуется Java 21+, текущая версия {}", Runtime.version());
+        }
+        p99.forEach((mode, millis) -> log.info("Режим {}: p99 {} мс, всплесков {} по {} запросов, потоков Tomcat {}",
+                mode, String.format("%.1f", millis), BURSTS, BURST, TOMCAT_THREADS));
+    }
+
+    private double measureP99(String mode) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ShareItServer.class)
+                .profiles(PROFILE)
+                .properties("server.port=0",
+                        "shareit.execution.mode=" + mode,
+                        "server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        "server.tomcat.accept-count=" + BURST,
+                        "logging.level.org.springframework.transaction.interceptor=INFO",
+                        "logging.level.org.springframework.orm.jpa.JpaTransactionManager=INFO")
+                .run()) {
+            List<Long> bookerIds = seedBookings(context.getBean(JdbcTemplate.class), mode);
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+
+            burst(port, bookerIds);
+            List<Long> latencies = new ArrayList<>(BURST * BURSTS);
+            for (int i = 0; i < BURSTS; i++) {
+                latencies.addAll(burst(port, bookerIds));
+            }
+            latencies.sort(null);
+            return latencies.get((int) Math.ceil(latencies.size() * 0.99) - 1) / 1_000_000.0;
+        }
+    }
+
+    private List<Long> burst(int port, List<Long> bookerIds) {
+        Random random = new Random(42);
+        List<CompletableFuture<Long>> responses = new ArrayList<>(BURST);
+        for (int i = 0; i < BURST; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/bookings?state=ALL"))
+                    .header("X-Sharer-User-Id", String.valueOf(bookerIds.get(random.nextInt(BOOKERS))))
+                    .build();
+            long start = System.nanoTime();
+            responses.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenApply(response -> {
+                        assertTrue(response.statusCode() == 200, "Ответ " + response.statusCode());
+                        return System.nanoTime() - start;
+                    }));
+        }
+        List<Long> latencies = new ArrayList<>(BURST);
+        responses.forEach(response -> latencies.add(response.join()));
+        return latencies;
+    }
+
+    private List<Long> seedBookings(JdbcTemplate jdbcTemplate, String mode) {
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i <= BOOKERS; i++) {
+            users.add(new Object[]{"user" + i, "load-" + mode + "-" + i + "@mail.ru"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (name, email) VALUES (?, ?)", users);
+        List<Long> userIds = jdbcTemplate.queryForList("SELECT id FROM users WHERE email LIKE ? ORDER BY id",
+                Long.class, "load-" + mode + "-%");
+        Long ownerId = userIds.get(0);
+        List<Long> bookerIds = userIds.subList(1, userIds.size());
+        jdbcTemplate.update("INSERT INTO items (name, description, is_available, owner_id) " +
+                "VALUES ('Дрель', 'Ударная дрель', true, ?)", ownerId);
+        Long itemId = jdbcTemplate.queryForObject("SELECT max(id) FROM items WHERE owner_id = ?", Long.class, ownerId);
+
+        List<Object[]> bookings = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.now().minusDays(BOOKINGS_PER_BOOKER);
+        for (Long bookerId : bookerIds) {
+            for (int i = 0; i < BOOKINGS_PER_BOOKER; i++) {
+                bookings.add(new Object[]{Timestamp.valueOf(start.plusDays(i)),
+                        Timestamp.valueOf(start.plusDays(i).plusHours(1)), itemId, bookerId, "APPROVED"});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO bookings (start_date, end_date, item_id, booker_id, status) " +
+                "VALUES (?, ?, ?, ?, ?)", bookings);
+        return bookerIds;
+    }
+}
@@ -0,0 +1,98 @@
+package ru.practicum.shareit.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.practicum.shareit.IntegrationTestBase;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.ItemSearchEngine;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Запуск: mvn test -pl server -Dtest=ItemSearchBenchmarkTest -Dshareit.benchmark=true [-Dshareit.benchmark.items=1000000]
+//В профиле test сравнивается LIKE-запрос к H2 и индекс в памяти; для PostgreSQL запускать с shareit.search.engine=postgres
+@Slf4j
+@EnabledIfSystemProperty(named = "shareit.benchmark", matches = "true")
+public class ItemSearchBenchmarkTest extends IntegrationTestBase {
+    private static final int ITEMS = Integer.getInteger("shareit.benchmark.items", 1_000_000);
+    private static final int QUERIES = Integer.getInteger("shareit.benchmark.queries", 200);
+    private static final int PAGE_SIZE = 20;
+    private static final int BATCH_SIZE = 10_000;
+    private static final String[] WORDS = {"дрель", "перфоратор", "лестница", "палатка", "велосипед", "самокат",
+            "отвертка", "пила", "гитара", "проектор", "кофеварка", "рюкзак", "спальник", "удочка", "лыжи",
+            "ударная", "складная", "детская", "туристическая", "электрическая", "новая", "большая", "легкая"};
+    //Прежний поиск по подстроке: страница и count(*) для нее, как отдавал Page из Spring Data
+    private static final String LIKE_CONDITION = "from Item i where i.available = true " +
+            "and (upper(i.name) like upper(concat('%', :text, '%')) " +
+            "or upper(i.description) like upper(concat('%', :text, '%')))";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private ItemSearchEngine itemSearchEngine;
+
+    @Test
+    public void searchEngineIsFasterThanLike() {
+        seedItems();
+        itemSearchEngine.rebuild();
+        Random random = new Random(42);
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            queries.add(word.substring(0, 3 + random.nextInt(word.length() - 2)));
+        }
+
+        double likeMillis = measure(queries, this::searchByLike);
+        double engineMillis = measure(queries, text -> itemSearchEngine.search(text, 0, PAGE_SIZE));
+        log.info("Вещей: {}, LIKE: {} мс/запрос, {}: {} мс/запрос", ITEMS, String.format("%.2f", likeMillis),
+                itemSearchEngine.getClass().getSimpleName(), String.format("%.2f", engineMillis));
+
+        assertTrue(engineMillis < likeMillis, "Полнотекстовый поиск медленнее LIKE");
+    }
+
+    private void searchByLike(String text) {
+        entityManager.createQuery("select i " + LIKE_CONDITION, Item.class)
+                .setParameter("text", text)
+                .setMaxResults(PAGE_SIZE)
+                .getResultList();
+        entityManager.createQuery("select count(i) " + LIKE_CONDITION, Long.class)
+                .setParameter("text", text)
+                .getSingleResult();
+    }
+
+    private double measure(List<String> queries, Consumer<String> search) {
+        queries.stream().limit(QUERIES / 10).forEach(search);
+        long start = System.nanoTime();
+        queries.forEach(search);
+        return (System.nanoTime() - start) / 1_000_000.0 / queries.size();
+    }
+
+    private void seedItems() {
+        jdbcTemplate.update("INSERT INTO users (name, email) VALUES ('benchmark', 'benchmark@mail.ru')");
+        Long ownerId = jdbcTemplate.queryForObject("SELECT id FROM users", Long.class);
+        Random random = new Random(7);
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < ITEMS; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            String description = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+            batch.add(new Object[]{name, description, random.nextInt(10) > 0, ownerId});
+            if (batch.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate("INSERT INTO items (name, description, is_available, owner_id) " +
+                        "VALUES (?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO items (name, description, is_available, owner_id) " +
+                    "VALUES (?, ?, ?, ?)", batch);
+        }
+    }
+}
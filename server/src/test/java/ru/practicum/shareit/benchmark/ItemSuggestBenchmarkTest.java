@@ -0,0 +1,59 @@
+package ru.practicum.shareit.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.ItemNameSuggester;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+//Запуск: mvn test -pl server -Dtest=ItemSuggestBenchmarkTest -Dshareit.benchmark=true [-Dshareit.benchmark.items=1000000]
+@Slf4j
+@EnabledIfSystemProperty(named = "shareit.benchmark", matches = "true")
+public class ItemSuggestBenchmarkTest {
+    private static final int ITEMS = Integer.getInteger("shareit.benchmark.items", 1_000_000);
+    private static final int QUERIES = 100_000;
+    private static final String ALPHABET = "абвгдеёжзийклмнопрстуфхцчшщьыэюя";
+
+    @Test
+    public void suggestTakesLessThanMillisecond() {
+        Random random = new Random(42);
+        List<ItemSuggestionDto> names = new ArrayList<>(ITEMS);
+        for (int i = 0; i < ITEMS; i++) {
+            names.add(new ItemSuggestionDto(i, randomWord(random, 4, 10) + " " + randomWord(random, 3, 8)));
+        }
+        ItemRepository itemRepository = mock(ItemRepository.class);
+        when(itemRepository.findAvailableItemNames()).thenReturn(names);
+        ItemNameSuggester suggester = new ItemNameSuggester(itemRepository);
+        suggester.rebuild();
+
+        List<String> prefixes = new ArrayList<>(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            prefixes.add(randomWord(random, 1, 4));
+        }
+        prefixes.stream().limit(QUERIES / 10).forEach(prefix -> suggester.suggest(prefix, 10));
+        long start = System.nanoTime();
+        prefixes.forEach(prefix -> suggester.suggest(prefix, 10));
+        double micros = (System.nanoTime() - start) / 1_000.0 / QUERIES;
+        log.info("Вещей: {}, мкс/подсказка: {}", ITEMS, String.format("%.1f", micros));
+
+        assertTrue(micros < 1_000, "Подсказка дольше миллисекунды");
+    }
+
+    private String randomWord(Random random, int minLength, int maxLength) {
+        StringBuilder word = new StringBuilder();
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        for (int i = 0; i < length; i++) {
+            word.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return word.toString();
+    }
+}
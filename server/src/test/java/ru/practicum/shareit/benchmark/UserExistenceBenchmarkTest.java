@@ -0,0 +1,81 @@
+package ru.practicum.shareit.benchmark;
+
+import com.sun.management.ThreadMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.practicum.shareit.IntegrationTestBase;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Запуск: mvn test -pl server -Dtest=UserExistenceBenchmarkTest -Dshareit.benchmark=true
+@Slf4j
+@EnabledIfSystemProperty(named = "shareit.benchmark", matches = "true")
+public class UserExistenceBenchmarkTest extends IntegrationTestBase {
+    private static final int ITERATIONS = Integer.getInteger("shareit.benchmark.iterations", 2_000);
+    private static final int[] TABLE_SIZES = {1_000, 10_000, Integer.getInteger("shareit.benchmark.users", 100_000)};
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    public void updateUserCostIsConstantForGrowingUsersTable() {
+        ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        User user = userService.createUser(createUserDto("benchmark", "benchmark@mail.ru"));
+        UserDto userDto = createUserDto("benchmark", null);
+        userDto.setId(user.getId());
+
+        int seeded = 0;
+        double firstBytes = 0;
+        double firstNanos = 0;
+        for (int size : TABLE_SIZES) {
+            seedUsers(seeded, size);
+            seeded = size;
+            for (int i = 0; i < ITERATIONS; i++) {
+                userService.updateUser(userDto);
+            }
+
+            long threadId = Thread.currentThread().getId();
+            long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+            long startNanos = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                userService.updateUser(userDto);
+            }
+            double nanosPerOp = (double) (System.nanoTime() - startNanos) / ITERATIONS;
+            double bytesPerOp = (double) (threadBean.getThreadAllocatedBytes(threadId) - bytesBefore) / ITERATIONS;
+            log.info("Пользователей: {}, мкс/операция: {}, байт/операция: {}",
+                    size, String.format("%.1f", nanosPerOp / 1_000), String.format("%.0f", bytesPerOp));
+
+            if (firstBytes == 0) {
+                firstBytes = bytesPerOp;
+                firstNanos = nanosPerOp;
+            } else {
+                assertTrue(bytesPerOp < firstBytes * 2, "Объем аллокаций растет вместе с таблицей пользователей");
+                assertTrue(nanosPerOp < firstNanos * 3, "Время операции растет вместе с таблицей пользователей");
+            }
+        }
+    }
+
+    private void seedUsers(int from, int to) {
+        List<Object[]> users = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            users.add(new Object[]{"user" + i, "user" + i + "@mail.ru"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (name, email) VALUES (?, ?)", users);
+    }
+
+    private UserDto createUserDto(String name, String email) {
+        UserDto userDto = new UserDto();
+        userDto.setName(name);
+        userDto.setEmail(email);
+        return userDto;
+    }
+}
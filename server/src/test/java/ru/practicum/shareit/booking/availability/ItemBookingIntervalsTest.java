@@ -0,0 +1,71 @@
+package ru.practicum.shareit.booking.availability;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ItemBookingIntervalsTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    @Test
+    public void overlapsChecksEachStatusSeparately() {
+        ItemBookingIntervals intervals = ItemBookingIntervals.of(List.of(
+                booking(1, 10, 20, Status.APPROVED),
+                booking(2, 30, 40, Status.WAITING),
+                booking(3, 0, 100, Status.REJECTED)));
+
+        assertTrue(intervals.overlaps(Status.APPROVED, at(15), at(16)));
+        assertTrue(intervals.overlaps(Status.APPROVED, at(5), at(11)));
+        assertFalse(intervals.overlaps(Status.APPROVED, at(20), at(30)), "Аренды, которые только касаются");
+        assertFalse(intervals.overlaps(Status.APPROVED, at(0), at(10)));
+        assertFalse(intervals.overlaps(Status.APPROVED, at(30), at(40)), "Ожидающая аренда занимает вещь");
+        assertTrue(intervals.overlaps(Status.WAITING, at(35), at(50)));
+        assertFalse(intervals.overlaps(Status.WAITING, at(50), at(60)), "Отклоненная аренда попала в набор");
+    }
+
+    //Длинная аренда, начавшаяся раньше, перекрывает период, хотя ближайшая по началу аренда закончилась
+    @Test
+    public void overlapsFindsLongBookingStartedEarlier() {
+        ItemBookingIntervals intervals = ItemBookingIntervals.of(List.of(
+                booking(1, 0, 100, Status.WAITING),
+                booking(2, 10, 20, Status.WAITING),
+                booking(3, 30, 40, Status.WAITING)));
+
+        assertTrue(intervals.overlaps(Status.WAITING, at(50), at(60)));
+        assertFalse(intervals.overlaps(Status.WAITING, at(100), at(110)));
+    }
+
+    @Test
+    public void withReplacesBookingWithSameId() {
+        Booking booking = booking(1, 10, 20, Status.WAITING);
+        ItemBookingIntervals intervals = ItemBookingIntervals.of(List.of()).with(booking).with(booking);
+        assertTrue(intervals.overlaps(Status.WAITING, at(10), at(20)));
+
+        intervals = intervals.with(booking(1, 10, 20, Status.APPROVED));
+        assertTrue(intervals.overlaps(Status.APPROVED, at(10), at(20)));
+        assertFalse(intervals.overlaps(Status.WAITING, at(10), at(20)));
+
+        intervals = intervals.with(booking(1, 10, 20, Status.CANCELED));
+        assertFalse(intervals.overlaps(Status.APPROVED, at(10), at(20)));
+    }
+
+    private static LocalDateTime at(int hours) {
+        return BASE.plusHours(hours);
+    }
+
+    private static Booking booking(Integer id, int startHours, int endHours, Status status) {
+        Booking booking = new Booking();
+        booking.setId(id);
+        booking.setItemId(1);
+        booking.setStart(at(startHours));
+        booking.setEnd(at(endHours));
+        booking.setStatus(status);
+        return booking;
+    }
+}
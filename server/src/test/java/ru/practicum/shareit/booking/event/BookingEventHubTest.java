@@ -0,0 +1,48 @@
+package ru.practicum.shareit.booking.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import ru.practicum.shareit.exception.RequestError;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BookingEventHubTest {
+    private BookingEventHub hub;
+
+    @AfterEach
+    void tearDown() {
+        hub.shutdown();
+    }
+
+    @Test
+    public void subscriptionsPerUserAreLimited() {
+        hub = createHub(10, 2);
+        hub.subscribe(1, null);
+        hub.subscribe(1, 5);
+
+        RequestError er = assertThrows(RequestError.class, () -> hub.subscribe(1, null));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, er.getStatus());
+        hub.subscribe(2, null);
+        assertEquals(3, hub.getOpenSubscriptions(), "Отклоненная подписка занимает место");
+    }
+
+    @Test
+    public void subscriptionsAreLimitedInTotal() {
+        hub = createHub(2, 5);
+        hub.subscribe(1, null);
+        hub.subscribe(2, null);
+
+        RequestError er = assertThrows(RequestError.class, () -> hub.subscribe(3, null));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, er.getStatus());
+        assertEquals(2, hub.getOpenSubscriptions(), "Отклоненная подписка занимает место");
+    }
+
+    private BookingEventHub createHub(int maxSubscriptions, int maxSubscriptionsPerUser) {
+        return new BookingEventHub(maxSubscriptions, maxSubscriptionsPerUser, 4, Duration.ofMinutes(1),
+                Duration.ofMinutes(1), 1);
+    }
+}
@@ -9,27 +9,39 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import ru.practicum.shareit.booking.BookingController;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.event.BookingEventHub;
+import ru.practicum.shareit.booking.event.BookingStatusEvent;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.model.Status;
 import ru.practicum.shareit.booking.service.BookingService;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,6 +55,16 @@ public class BookingControllerTest {
     private Booking booking;
     private BookingDto bookingDto;
 
+    //События отправляются из пула потоков подписок, поэтому ответ дописывается уже после perform.
+    //Событие SSE заканчивается пустой строкой
+    private static String awaitContent(MvcResult result) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!result.getResponse().getContentAsString().contains("\n\n") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return result.getResponse().getContentAsString();
+    }
+
     @BeforeEach
     void setUp() {
         mvc = MockMvcBuilders
@@ -84,6 +106,7 @@ public class BookingControllerTest {
 
     @Test
     public void getBookingByIdForOwnerOrBookerTest() throws Exception {
+        when(bookingService.getBookingEtag(any(), any())).thenReturn("\"booking-1-1-1\"");
         when(bookingService.getBookingByIdForOwnerOrBooker(any(), any())).thenReturn(bookingDto);
 
         mvc.perform(get("/bookings/1")
@@ -96,7 +119,51 @@ public class BookingControllerTest {
                 .andExpect(jsonPath("$.id", is(booking.getId()), Integer.class))
                 .andExpect(jsonPath("$.start", is(notNullValue())))
                 .andExpect(jsonPath("$.end", is(notNullValue())))
-                .andExpect(jsonPath("$.status", is(booking.getStatus().toString())));
+                .andExpect(jsonPath("$.status", is(booking.getStatus().toString())))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"booking-1-1-1\""));
+    }
+
+    @Test
+    public void getBookingByIdNotModifiedTest() throws Exception {
+        when(bookingService.getBookingEtag(any(), any())).thenReturn("\"booking-1-1-1\"");
+
+        mvc.perform(get("/bookings/1")
+                        .header("X-Sharer-User-Id", 1)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"booking-1-1-1\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+        verify(bookingService, never()).getBookingByIdForOwnerOrBooker(any(), any());
+    }
+
+    @Test
+    public void subscribeToBookingEventsTest() throws Exception {
+        BookingEventHub hub = new BookingEventHub(10, 5, 4, Duration.ofMinutes(1), Duration.ofMinutes(1), 1);
+        when(bookingService.subscribeToBookingEvents(any(), any()))
+                .thenAnswer(invocation -> hub.subscribe(invocation.getArgument(0), invocation.getArgument(1)));
+        try {
+            MvcResult booker = mvc.perform(get("/bookings/events")
+                            .header("X-Sharer-User-Id", 1)
+                            .accept(MediaType.TEXT_EVENT_STREAM))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            MvcResult ownerOfOtherBooking = mvc.perform(get("/bookings/events?bookingId=2")
+                            .header("X-Sharer-User-Id", 2)
+                            .accept(MediaType.TEXT_EVENT_STREAM))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            hub.publish(new BookingStatusEvent(1, 1, 1, 2, Status.APPROVED));
+            hub.publish(new BookingStatusEvent(3, 1, 3, 4, Status.WAITING));
+
+            String events = awaitContent(booker);
+            assertThat(events, containsString("event:" + BookingEventHub.STATUS_EVENT));
+            assertThat(events, containsString("\"bookingId\":1"));
+            assertThat(events, containsString("\"status\":\"APPROVED\""));
+            assertThat(events, not(containsString("\"bookingId\":3")));
+            assertThat(ownerOfOtherBooking.getResponse().getContentAsString(), is(""));
+        } finally {
+            hub.shutdown();
+        }
     }
 
     @Test
@@ -169,4 +236,32 @@ public class BookingControllerTest {
                 .andExpect(jsonPath("$[*].end", containsInAnyOrder(notNullValue())))
                 .andExpect(jsonPath("$[*].status", containsInAnyOrder(booking.getStatus().toString())));
     }
+
+    @Test
+    public void getBookingsForUserByCursorTest() throws Exception {
+        when(bookingService.getBookingsForUserByCursor(any(), any(), any(), any()))
+                .thenReturn(new SliceImpl<>(List.of(bookingDto), PageRequest.of(0, 1), true));
+
+        mvc.perform(get("/bookings?cursor=&size=1")
+                        .header("X-Sharer-User-Id", 1)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(BookingController.NEXT_CURSOR_HEADER, is(notNullValue())))
+                .andExpect(jsonPath("$[*].id", containsInAnyOrder(booking.getId())));
+    }
+
+    @Test
+    public void getBookingsForOwnerByCursorLastPageTest() throws Exception {
+        when(bookingService.getBookingsForOwnerByCursor(any(), any(), any(), any()))
+                .thenReturn(new SliceImpl<>(List.of(bookingDto), PageRequest.of(0, 10), false));
+
+        mvc.perform(get("/bookings/owner?cursor=abc&size=10")
+                        .header("X-Sharer-User-Id", 1)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(BookingController.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$[*].id", containsInAnyOrder(booking.getId())));
+    }
 }
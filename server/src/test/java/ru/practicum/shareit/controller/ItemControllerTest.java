@@ -9,15 +9,21 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.practicum.shareit.exception.RequestError;
 import ru.practicum.shareit.item.ItemController;
 import ru.practicum.shareit.item.dto.CommentResponseDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.stream.NdjsonStreamer;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
@@ -26,10 +32,15 @@ import java.util.List;
 import static org.hamcrest.Matchers.*;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -131,6 +142,7 @@ public class ItemControllerTest {
 
     @Test
     public void getItemByIdTest() throws Exception {
+        when(itemService.getItemEtag(any(), any())).thenReturn("\"item-1-1\"");
         when(itemService.getItemById(any(), any())).thenReturn(itemDto);
 
         mvc.perform(get("/items/1")
@@ -143,7 +155,21 @@ public class ItemControllerTest {
                 .andExpect(jsonPath("$.name", is(itemDto.getName())))
                 .andExpect(jsonPath("$.description", is(itemDto.getDescription())))
                 .andExpect(jsonPath("$.available", is(itemDto.getAvailable())))
-                .andExpect(jsonPath("$.requestId", is(itemDto.getRequestId())));
+                .andExpect(jsonPath("$.requestId", is(itemDto.getRequestId())))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"item-1-1\""));
+    }
+
+    @Test
+    public void getItemByIdNotModifiedTest() throws Exception {
+        when(itemService.getItemEtag(any(), any())).thenReturn("\"item-1-1\"");
+
+        mvc.perform(get("/items/1")
+                        .header("X-Sharer-User-Id", 1)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"item-1-1\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(itemService, never()).getItemById(any(), any());
     }
 
     @Test
@@ -213,4 +239,59 @@ public class ItemControllerTest {
                 .andExpect(jsonPath("$[*].available", containsInAnyOrder(itemDto.getAvailable())))
                 .andExpect(jsonPath("$[*].requestId", containsInAnyOrder(itemDto.getRequestId())));
     }
+
+    @Test
+    public void searchAvailableItemsTest() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        LocalDateTime end = LocalDateTime.of(2030, 1, 2, 10, 0);
+        when(itemService.searchAvailableItems(1, "text", start, end, 0, 20)).thenReturn(List.of(item));
+
+        mvc.perform(get("/items/search?text=text&from=0&size=20&start=2030-01-01T10:00:00&end=2030-01-02T10:00:00")
+                        .header("X-Sharer-User-Id", 1)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", containsInAnyOrder(itemDto.getId())));
+        verify(itemService, never()).searchItemByTextWithPagination(any(), any(), any(), any());
+    }
+
+    @Test
+    public void getItemAvailabilityTest() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        LocalDateTime end = LocalDateTime.of(2030, 1, 2, 10, 0);
+        when(itemService.getItemAvailability(1, 2, start, end))
+                .thenReturn(new ItemAvailabilityDto(1, start, end, false, true));
+
+        mvc.perform(get("/items/1/availability?start=2030-01-01T10:00:00&end=2030-01-02T10:00:00")
+                        .header("X-Sharer-User-Id", 2)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itemId", is(1)))
+                .andExpect(jsonPath("$.available", is(false)))
+                .andExpect(jsonPath("$.requested", is(true)));
+    }
+
+    @Test
+    public void suggestItemNamesTest() throws Exception {
+        when(itemService.suggestItemNames("it", 50))
+                .thenReturn(List.of(new ItemSuggestionDto(item.getId(), item.getName())));
+
+        mvc.perform(get("/items/suggest?prefix=it&limit=100")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", containsInAnyOrder(item.getId())))
+                .andExpect(jsonPath("$[*].name", containsInAnyOrder(item.getName())));
+    }
+
+    @Test
+    public void streamAllItemsOwnerReturnsNotFoundBeforeStreaming() throws Exception {
+        when(itemService.streamAllItemsOwner(1))
+                .thenThrow(new RequestError(HttpStatus.NOT_FOUND, "Пользователь с id 1 не найден"));
+
+        mvc.perform(get("/items")
+                        .header("X-Sharer-User-Id", 1)
+                        .accept(NdjsonStreamer.APPLICATION_NDJSON))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotFound());
+    }
 }
@@ -6,10 +6,15 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.practicum.shareit.etag.JsonEtagFilter;
+import ru.practicum.shareit.stream.NdjsonStreamer;
 import ru.practicum.shareit.user.UserController;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
@@ -24,7 +29,10 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +40,8 @@ public class UserControllerTest {
 
     @Mock
     private UserService userService;
+    @Spy
+    private NdjsonStreamer ndjsonStreamer = new NdjsonStreamer(new ObjectMapper());
     @InjectMocks
     private UserController userController;
     private final ObjectMapper mapper = new ObjectMapper();
@@ -114,6 +124,71 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$[*].email", containsInAnyOrder(user.getEmail())));
     }
 
+    @Test
+    public void getAllUsersWithoutAcceptReturnsJsonArray() throws Exception {
+        when(userService.getAllUsers()).thenReturn(List.of(user));
+
+        mvc.perform(get("/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(user.getId()), Integer.class));
+    }
+
+    @Test
+    public void streamAllUsersAsNdjson() throws Exception {
+        User second = new User();
+        second.setId(2);
+        second.setName("Second");
+        second.setEmail("second@mail.ru");
+        when(userService.streamAllUsers()).thenReturn(List.of(user, second)::forEach);
+
+        MvcResult result = mvc.perform(get("/users")
+                        .accept(NdjsonStreamer.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(NdjsonStreamer.APPLICATION_NDJSON))
+                .andExpect(content().string(mapper.writeValueAsString(user) + "\n"
+                        + mapper.writeValueAsString(second) + "\n"));
+    }
+
+    @Test
+    public void getUserByIdReturnsNotModifiedForMatchingEtag() throws Exception {
+        MockMvc etagMvc = MockMvcBuilders.standaloneSetup(userController)
+                .addFilters(new JsonEtagFilter())
+                .build();
+        when(userService.getUserById(any())).thenReturn(user);
+
+        String etag = etagMvc.perform(get("/users/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        etagMvc.perform(get("/users/1")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void streamAllUsersIsNotBufferedForEtag() throws Exception {
+        MockMvc etagMvc = MockMvcBuilders.standaloneSetup(userController)
+                .addFilters(new JsonEtagFilter())
+                .build();
+        when(userService.streamAllUsers()).thenReturn(List.of(user)::forEach);
+
+        MvcResult result = etagMvc.perform(get("/users")
+                        .accept(NdjsonStreamer.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        etagMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(content().string(mapper.writeValueAsString(user) + "\n"));
+    }
+
     @Test
     public void deleteUserByIdTest() throws Exception {
         mvc.perform(delete("/users/1")
@@ -2,6 +2,7 @@ package ru.practicum.shareit.mapper;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
@@ -31,7 +32,7 @@ public class ItemMapperTest {
 
     @Test
     public void toItemDtoTest() {
-        ItemDto itemDto = ItemMapper.toItemDto(item, user, new ArrayList<>(), new ArrayList<>());
+        ItemDto itemDto = ItemMapper.toItemDto(item, user, null, null, new ArrayList<>());
         assertEquals(itemDto.getId(), item.getId());
         assertEquals(itemDto.getName(), item.getName());
         assertEquals(itemDto.getDescription(), item.getDescription());
@@ -40,11 +41,22 @@ public class ItemMapperTest {
 
     @Test
     public void toItemTest() {
-        ItemDto itemDto = ItemMapper.toItemDto(item, user, new ArrayList<>(), new ArrayList<>());
+        ItemDto itemDto = ItemMapper.toItemDto(item, user, null, null, new ArrayList<>());
         ItemMapper.toItem(itemDto);
         assertEquals(item.getId(), itemDto.getId());
         assertEquals(item.getName(), itemDto.getName());
         assertEquals(item.getDescription(), itemDto.getDescription());
         assertEquals(item.isAvailable(), itemDto.getAvailable());
     }
+
+    @Test
+    public void toItemDtoWithBookingsTest() {
+        Booking lastBooking = new Booking();
+        lastBooking.setId(1);
+        Booking nextBooking = new Booking();
+        nextBooking.setId(2);
+        ItemDto itemDto = ItemMapper.toItemDto(item, user, lastBooking, nextBooking, new ArrayList<>());
+        assertEquals(lastBooking, itemDto.getLastBooking());
+        assertEquals(nextBooking, itemDto.getNextBooking());
+    }
 }
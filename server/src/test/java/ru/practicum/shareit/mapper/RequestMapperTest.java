@@ -12,6 +12,7 @@ import ru.practicum.shareit.user.model.User;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -57,4 +58,15 @@ public class RequestMapperTest {
         assertEquals(itemRequestDto.getName(), item.getName());
         assertEquals(itemRequestDto.getRequestId(), item.getRequestId());
     }
+
+    @Test
+    public void toRequestDtoWithAnswersTest() {
+        ItemRequestDto answer = new ItemRequestDto(item.getId(), item.getName(), item.getDescription(),
+                item.isAvailable(), item.getRequestId());
+        RequestDto requestDto = RequestMapper.toRequestDtoWithAnswers(request, List.of(answer));
+        assertEquals(requestDto.getId(), request.getId());
+        assertEquals(requestDto.getDescription(), request.getDescription());
+        assertEquals(List.of(RequestMapper.toItemRequestDto(item)), requestDto.getItems());
+        assertEquals(0, RequestMapper.toRequestDtoWithAnswers(request, null).getItems().size());
+    }
 }